@@ -0,0 +1,148 @@
+package love.wangqi.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Utility methods to encode and decode big-endian primitives directly in a {@code byte[]}. Callers are responsible for
+ * checking that the array has enough room at the given offset.
+ */
+public final class ByteUtils {
+
+    private ByteUtils() {} // no instance
+
+    /** Write a short in big-endian format at {@code offset}. */
+    public static void writeShortBE(short s, byte[] arr, int offset) {
+        arr[offset] = (byte) (s >> 8);
+        arr[offset + 1] = (byte) s;
+    }
+
+    /** Read a short in big-endian format at {@code offset}. */
+    public static short readShortBE(byte[] arr, int offset) {
+        return (short) (((arr[offset] & 0xFF) << 8) | (arr[offset + 1] & 0xFF));
+    }
+
+    /** Write an int in big-endian format at {@code offset}. */
+    public static void writeIntBE(int i, byte[] arr, int offset) {
+        arr[offset] = (byte) (i >> 24);
+        arr[offset + 1] = (byte) (i >> 16);
+        arr[offset + 2] = (byte) (i >> 8);
+        arr[offset + 3] = (byte) i;
+    }
+
+    /** Read an int in big-endian format at {@code offset}. */
+    public static int readIntBE(byte[] arr, int offset) {
+        return ((arr[offset] & 0xFF) << 24) | ((arr[offset + 1] & 0xFF) << 16)
+                | ((arr[offset + 2] & 0xFF) << 8) | (arr[offset + 3] & 0xFF);
+    }
+
+    /** Write a long in big-endian format at {@code offset}. */
+    public static void writeLongBE(long l, byte[] arr, int offset) {
+        writeIntBE((int) (l >> 32), arr, offset);
+        writeIntBE((int) l, arr, offset + 4);
+    }
+
+    /** Read a long in big-endian format at {@code offset}. */
+    public static long readLongBE(byte[] arr, int offset) {
+        return (((long) readIntBE(arr, offset)) << 32) | (readIntBE(arr, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Write an int in the variable-length format of {@code StreamOutput#writeVInt} at {@code offset}, which needs at most
+     * 5 bytes of room.
+     *
+     * @return the offset right after the last written byte
+     */
+    public static int writeVInt(int i, byte[] arr, int offset) {
+        if ((i & ~0x7F) == 0) {
+            arr[offset] = (byte) i;
+            return offset + 1;
+        }
+        // the length is known up front so the loop does not branch on the value
+        final int last = offset + vIntSize(i) - 1;
+        for (; offset < last; offset++) {
+            arr[offset] = (byte) (i | 0x80);
+            i >>>= 7;
+        }
+        arr[last] = (byte) i;
+        return last + 1;
+    }
+
+    /**
+     * Returns the number of bytes {@code i} takes in the variable-length format of {@code StreamOutput#writeVInt}, between
+     * one and five.
+     */
+    public static int vIntSize(int i) {
+        // seven bits per byte, at least one byte even for zero
+        return (38 - Integer.numberOfLeadingZeros(i | 1)) / 7;
+    }
+
+    /**
+     * Write a long in the variable-length format of {@code StreamOutput#writeVLong} at {@code offset}, which needs at most
+     * 10 bytes of room. Negative values are not rejected and always take 10 bytes.
+     *
+     * @return the offset right after the last written byte
+     */
+    public static int writeVLong(long l, byte[] arr, int offset) {
+        if ((l & ~0x7FL) == 0) {
+            arr[offset] = (byte) l;
+            return offset + 1;
+        }
+        // the length is known up front so the loop does not branch on the value
+        final int last = offset + vLongSize(l) - 1;
+        for (; offset < last; offset++) {
+            arr[offset] = (byte) (l | 0x80);
+            l >>>= 7;
+        }
+        arr[last] = (byte) l;
+        return last + 1;
+    }
+
+    /**
+     * Returns the number of bytes {@code l} takes in the variable-length format of {@code StreamOutput#writeVLong}, between
+     * one and ten.
+     */
+    public static int vLongSize(long l) {
+        // seven bits per byte, at least one byte even for zero
+        return (70 - Long.numberOfLeadingZeros(l | 1)) / 7;
+    }
+
+    /** Write {@code length} ints from {@code src} in big-endian format into {@code dst} at {@code dstOffset}. */
+    public static void writeIntsBE(int[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        ByteBuffer.wrap(dst, dstOffset, length * Integer.BYTES).asIntBuffer().put(src, srcOffset, length);
+    }
+
+    /** Read {@code length} big-endian ints from {@code src} at {@code srcOffset} into {@code dst}. */
+    public static void readIntsBE(byte[] src, int srcOffset, int[] dst, int dstOffset, int length) {
+        ByteBuffer.wrap(src, srcOffset, length * Integer.BYTES).asIntBuffer().get(dst, dstOffset, length);
+    }
+
+    /** Write {@code length} longs from {@code src} in big-endian format into {@code dst} at {@code dstOffset}. */
+    public static void writeLongsBE(long[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        ByteBuffer.wrap(dst, dstOffset, length * Long.BYTES).asLongBuffer().put(src, srcOffset, length);
+    }
+
+    /** Read {@code length} big-endian longs from {@code src} at {@code srcOffset} into {@code dst}. */
+    public static void readLongsBE(byte[] src, int srcOffset, long[] dst, int dstOffset, int length) {
+        ByteBuffer.wrap(src, srcOffset, length * Long.BYTES).asLongBuffer().get(dst, dstOffset, length);
+    }
+
+    /** Write {@code length} floats from {@code src} in big-endian format into {@code dst} at {@code dstOffset}. */
+    public static void writeFloatsBE(float[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        ByteBuffer.wrap(dst, dstOffset, length * Float.BYTES).asFloatBuffer().put(src, srcOffset, length);
+    }
+
+    /** Read {@code length} big-endian floats from {@code src} at {@code srcOffset} into {@code dst}. */
+    public static void readFloatsBE(byte[] src, int srcOffset, float[] dst, int dstOffset, int length) {
+        ByteBuffer.wrap(src, srcOffset, length * Float.BYTES).asFloatBuffer().get(dst, dstOffset, length);
+    }
+
+    /** Write {@code length} doubles from {@code src} in big-endian format into {@code dst} at {@code dstOffset}. */
+    public static void writeDoublesBE(double[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        ByteBuffer.wrap(dst, dstOffset, length * Double.BYTES).asDoubleBuffer().put(src, srcOffset, length);
+    }
+
+    /** Read {@code length} big-endian doubles from {@code src} at {@code srcOffset} into {@code dst}. */
+    public static void readDoublesBE(byte[] src, int srcOffset, double[] dst, int dstOffset, int length) {
+        ByteBuffer.wrap(src, srcOffset, length * Double.BYTES).asDoubleBuffer().get(dst, dstOffset, length);
+    }
+}
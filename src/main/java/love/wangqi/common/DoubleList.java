@@ -0,0 +1,91 @@
+package love.wangqi.common;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A fixed size {@link List} view of a {@code double[]}, the {@code double} counterpart of {@link Arrays#asList}. Nothing is
+ * copied and elements are only boxed when they are accessed through the {@link List} methods, {@link #getDouble(int)}
+ * and {@link #array()} give access to the values without boxing.
+ */
+public final class DoubleList extends PrimitiveList<Double> {
+
+    private final double[] values;
+
+    public DoubleList(double[] values) {
+        this(values, 0, values.length);
+    }
+
+    /**
+     * Creates a view of {@code values[offset, offset + length)}.
+     */
+    public DoubleList(double[] values, int offset, int length) {
+        super(Objects.requireNonNull(values).length, offset, length);
+        this.values = values;
+    }
+
+    @Override
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+    /**
+     * Returns the value at the given index without boxing it.
+     */
+    public double getDouble(int index) {
+        return values[arrayIndex(index)];
+    }
+
+    @Override
+    public Double set(int index, Double element) {
+        final int i = arrayIndex(index);
+        final double previous = values[i];
+        values[i] = element;
+        return previous;
+    }
+
+    /**
+     * Returns the backing array, the values of this list start at {@link #offset()}.
+     */
+    public double[] array() {
+        return values;
+    }
+
+    /**
+     * Returns a copy of the values of this list.
+     */
+    public double[] toDoubleArray() {
+        return Arrays.copyOfRange(values, offset, offset + length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof DoubleList) {
+            final DoubleList other = (DoubleList) o;
+            if (other.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (Double.compare(values[offset + i], other.values[other.offset + i]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        // same as AbstractList#hashCode without boxing every element
+        int hashCode = 1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hashCode = 31 * hashCode + Double.hashCode(values[i]);
+        }
+        return hashCode;
+    }
+}
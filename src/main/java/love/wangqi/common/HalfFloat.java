@@ -0,0 +1,107 @@
+package love.wangqi.common;
+
+/**
+ * Conversions between {@code float} and the IEEE 754 half precision format, 1 sign bit, 5 exponent bits and 10 mantissa
+ * bits stored in a {@code short}. Half floats keep about three significant decimal digits for magnitudes between
+ * {@code 6.1e-5} and {@code 65504}, smaller values lose precision gradually and larger ones become infinite.
+ */
+public final class HalfFloat {
+
+    private HalfFloat() {
+    }
+
+    /**
+     * Returns the half float closest to {@code value}, ties rounding to the even one. NaNs stay NaNs and values too large for
+     * a half float become infinite.
+     */
+    public static short fromFloat(float value) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int sign = (bits >>> 16) & 0x8000;
+        final int exponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+        if (exponent == 0xFF) {
+            // infinite, or NaN whose payload is truncated but kept non zero
+            return (short) (sign | 0x7C00 | (mantissa == 0 ? 0 : 0x200 | (mantissa >>> 13)));
+        }
+        final int halfExponent = exponent - 127 + 15;
+        if (halfExponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        if (halfExponent <= 0) {
+            if (halfExponent < -10) {
+                // below half of the smallest subnormal half float
+                return (short) sign;
+            }
+            // subnormal, the implicit leading bit becomes explicit
+            mantissa |= 0x800000;
+            final int shift = 14 - halfExponent;
+            final int roundBit = 1 << (shift - 1);
+            int half = mantissa >>> shift;
+            // round up above the half way point, or on it when the result would be odd
+            if ((mantissa & roundBit) != 0 && (mantissa & (3 * roundBit - 1)) != 0) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = sign | (halfExponent << 10) | (mantissa >>> 13);
+        // same rounding on the 13 dropped bits, a carry into the exponent is still the right result
+        if ((mantissa & 0x1000) != 0 && (mantissa & 0x2FFF) != 0) {
+            half++;
+        }
+        return (short) half;
+    }
+
+    /**
+     * Same as {@link #fromFloat(float)}, rounding straight from the double: going through a float would round twice and
+     * could turn a value just above a tie into the tie, then round it down to even.
+     */
+    public static short fromDouble(double value) {
+        final long bits = Double.doubleToRawLongBits(value);
+        final int sign = (int) (bits >>> 48) & 0x8000;
+        final int exponent = (int) (bits >>> 52) & 0x7FF;
+        long mantissa = bits & 0xFFFFFFFFFFFFFL;
+        if (exponent == 0x7FF) {
+            return (short) (sign | 0x7C00 | (mantissa == 0 ? 0 : 0x200 | (int) (mantissa >>> 42)));
+        }
+        final int halfExponent = exponent - 1023 + 15;
+        if (halfExponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        if (halfExponent <= 0) {
+            if (halfExponent < -10) {
+                return (short) sign;
+            }
+            mantissa |= 0x10000000000000L;
+            final int shift = 43 - halfExponent;
+            final long roundBit = 1L << (shift - 1);
+            int half = (int) (mantissa >>> shift);
+            if ((mantissa & roundBit) != 0 && (mantissa & (3 * roundBit - 1)) != 0) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = sign | (halfExponent << 10) | (int) (mantissa >>> 42);
+        if ((mantissa & 0x20000000000L) != 0 && (mantissa & 0x5FFFFFFFFFFL) != 0) {
+            half++;
+        }
+        return (short) half;
+    }
+
+    /**
+     * Returns the float equal to the half float {@code half}, which is always exact.
+     */
+    public static float toFloat(short half) {
+        final int sign = (half & 0x8000) << 16;
+        final int exponent = (half >>> 10) & 0x1F;
+        final int mantissa = half & 0x3FF;
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        if (exponent == 0) {
+            // zero or subnormal, a multiple of the smallest subnormal
+            final float value = mantissa * 0x1p-24f;
+            return sign == 0 ? value : -value;
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 127 - 15) << 23) | (mantissa << 13));
+    }
+}
@@ -0,0 +1,91 @@
+package love.wangqi.common;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A fixed size {@link List} view of a {@code long[]}, the {@code long} counterpart of {@link Arrays#asList}. Nothing is
+ * copied and elements are only boxed when they are accessed through the {@link List} methods, {@link #getLong(int)}
+ * and {@link #array()} give access to the values without boxing.
+ */
+public final class LongList extends PrimitiveList<Long> {
+
+    private final long[] values;
+
+    public LongList(long[] values) {
+        this(values, 0, values.length);
+    }
+
+    /**
+     * Creates a view of {@code values[offset, offset + length)}.
+     */
+    public LongList(long[] values, int offset, int length) {
+        super(Objects.requireNonNull(values).length, offset, length);
+        this.values = values;
+    }
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    /**
+     * Returns the value at the given index without boxing it.
+     */
+    public long getLong(int index) {
+        return values[arrayIndex(index)];
+    }
+
+    @Override
+    public Long set(int index, Long element) {
+        final int i = arrayIndex(index);
+        final long previous = values[i];
+        values[i] = element;
+        return previous;
+    }
+
+    /**
+     * Returns the backing array, the values of this list start at {@link #offset()}.
+     */
+    public long[] array() {
+        return values;
+    }
+
+    /**
+     * Returns a copy of the values of this list.
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOfRange(values, offset, offset + length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof LongList) {
+            final LongList other = (LongList) o;
+            if (other.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (Long.compare(values[offset + i], other.values[other.offset + i]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        // same as AbstractList#hashCode without boxing every element
+        int hashCode = 1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hashCode = 31 * hashCode + Long.hashCode(values[i]);
+        }
+        return hashCode;
+    }
+}
@@ -0,0 +1,49 @@
+package love.wangqi.common;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The bounds of a fixed size {@link List} view of a range of a primitive array, shared by {@link IntList},
+ * {@link LongList}, {@link FloatList} and {@link DoubleList} which each hold the array and access its values.
+ */
+abstract class PrimitiveList<E> extends AbstractList<E> implements RandomAccess {
+
+    final int offset;
+    final int length;
+
+    /**
+     * Creates the bounds of a view of {@code [offset, offset + length)} of an array of {@code arrayLength} values.
+     */
+    PrimitiveList(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            throw new IndexOutOfBoundsException("offset [" + offset + "] and length [" + length + "] out of bounds for array of length "
+                + arrayLength);
+        }
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public final int size() {
+        return length;
+    }
+
+    /**
+     * Returns the index of the first value of this list in the backing array.
+     */
+    public final int offset() {
+        return offset;
+    }
+
+    /**
+     * Returns the index in the backing array of the value at {@code index} in this list.
+     */
+    final int arrayIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index [" + index + "] out of bounds for length " + length);
+        }
+        return offset + index;
+    }
+}
@@ -0,0 +1,70 @@
+package love.wangqi.common.bytes;
+
+import love.wangqi.stream.ByteBufferStreamInput;
+import love.wangqi.stream.StreamInput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A {@link BytesReference} over the remaining bytes of a heap, direct or memory-mapped {@link ByteBuffer}.
+ */
+public final class ByteBufferReference extends BytesReference {
+
+    private static final int WRITE_CHUNK_SIZE = 8 * 1024;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Wraps the remaining bytes of the given buffer. The position of the given buffer is left untouched.
+     */
+    public ByteBufferReference(ByteBuffer buffer) {
+        this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public byte get(int index) {
+        return buffer.get(index);
+    }
+
+    @Override
+    public int length() {
+        return buffer.limit();
+    }
+
+    @Override
+    public BytesReference slice(int from, int length) {
+        checkSlice(from, length);
+        final ByteBuffer view = buffer.duplicate();
+        view.position(from);
+        view.limit(from + length);
+        return new ByteBufferReference(view);
+    }
+
+    @Override
+    public StreamInput streamInput() {
+        return new ByteBufferStreamInput(buffer);
+    }
+
+    @Override
+    public void writeTo(OutputStream os) throws IOException {
+        if (buffer.hasArray()) {
+            os.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+            return;
+        }
+        final ByteBuffer view = buffer.duplicate();
+        final byte[] chunk = new byte[Math.min(WRITE_CHUNK_SIZE, view.remaining())];
+        while (view.hasRemaining()) {
+            final int length = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, length);
+            os.write(chunk, 0, length);
+        }
+    }
+
+    @Override
+    public ByteBuffer[] toByteBuffers() {
+        return new ByteBuffer[]{buffer.asReadOnlyBuffer()};
+    }
+}
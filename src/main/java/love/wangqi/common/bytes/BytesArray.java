@@ -0,0 +1,80 @@
+package love.wangqi.common.bytes;
+
+import love.wangqi.stream.ByteArrayStreamInput;
+import love.wangqi.stream.StreamInput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link BytesReference} over a range of a {@code byte[]}.
+ */
+public final class BytesArray extends BytesReference {
+
+    public static final BytesArray EMPTY = new BytesArray(new byte[0], 0, 0);
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    public BytesArray(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public BytesArray(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("offset [" + offset + "] and length [" + length
+                    + "] out of bounds for byte[] of length " + bytes.length);
+        }
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public byte get(int index) {
+        return bytes[offset + index];
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public BytesReference slice(int from, int length) {
+        checkSlice(from, length);
+        return new BytesArray(bytes, offset + from, length);
+    }
+
+    @Override
+    public StreamInput streamInput() {
+        return new ByteArrayStreamInput(bytes, offset, length);
+    }
+
+    @Override
+    public void writeTo(OutputStream os) throws IOException {
+        os.write(bytes, offset, length);
+    }
+
+    @Override
+    public ByteBuffer[] toByteBuffers() {
+        return new ByteBuffer[]{ByteBuffer.wrap(bytes, offset, length).slice().asReadOnlyBuffer()};
+    }
+
+    @Override
+    public byte[] toBytes() {
+        final byte[] copy = new byte[length];
+        System.arraycopy(bytes, offset, copy, 0, length);
+        return copy;
+    }
+
+    public byte[] array() {
+        return bytes;
+    }
+
+    public int offset() {
+        return offset;
+    }
+}
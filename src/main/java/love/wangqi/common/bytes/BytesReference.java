@@ -0,0 +1,103 @@
+package love.wangqi.common.bytes;
+
+import love.wangqi.stream.StreamInput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An immutable view over a sequence of bytes. Implementations wrap the bytes they are given without copying them, so a
+ * reference obtained from a stream is only as stable as the memory it points to.
+ */
+public abstract class BytesReference {
+
+    /**
+     * Returns the byte at the specified index. Need to be between 0 and length.
+     */
+    public abstract byte get(int index);
+
+    /**
+     * The length.
+     */
+    public abstract int length();
+
+    /**
+     * Slice the bytes from the {@code from} index up to {@code length}, sharing the underlying bytes.
+     */
+    public abstract BytesReference slice(int from, int length);
+
+    /**
+     * A stream input of the bytes.
+     */
+    public abstract StreamInput streamInput();
+
+    /**
+     * Writes the bytes directly to the output stream.
+     */
+    public abstract void writeTo(OutputStream os) throws IOException;
+
+    /**
+     * Returns read-only {@link ByteBuffer} views of the bytes, in order, without copying them.
+     */
+    public abstract ByteBuffer[] toByteBuffers();
+
+    /**
+     * Returns a copy of the bytes as a single array.
+     */
+    public byte[] toBytes() {
+        final byte[] bytes = new byte[length()];
+        int offset = 0;
+        for (ByteBuffer buffer : toByteBuffers()) {
+            final int length = buffer.remaining();
+            buffer.get(bytes, offset, length);
+            offset += length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Checks that a slice of {@code length} bytes starting at {@code from} is within the bounds of this reference.
+     */
+    protected void checkSlice(int from, int length) {
+        if (from < 0 || length < 0 || from > length() - length) {
+            throw new IndexOutOfBoundsException("can't slice a buffer with length [" + length() + "], with slice parameters from ["
+                    + from + "], length [" + length + "]");
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other instanceof BytesReference == false) {
+            return false;
+        }
+        final BytesReference otherRef = (BytesReference) other;
+        final int length = length();
+        if (length != otherRef.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (get(i) != otherRef.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0, length = length(); i < length; i++) {
+            result = 31 * result + get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[length=" + length() + "]";
+    }
+}
@@ -0,0 +1,116 @@
+package love.wangqi.common.bytes;
+
+import love.wangqi.stream.CompositeStreamInput;
+import love.wangqi.stream.StreamInput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link BytesReference} that concatenates several references without copying them.
+ */
+public final class CompositeBytesReference extends BytesReference {
+
+    private final BytesReference[] references;
+    /**
+     * The offset of the first byte of every reference, followed by the total length.
+     */
+    private final int[] offsets;
+
+    public CompositeBytesReference(BytesReference... references) {
+        this.references = references.clone();
+        this.offsets = new int[references.length + 1];
+        long length = 0;
+        for (int i = 0; i < references.length; i++) {
+            offsets[i] = (int) length;
+            length += references[i].length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("CompositeBytesReference cannot hold more than 2GB");
+            }
+        }
+        offsets[references.length] = (int) length;
+    }
+
+    /**
+     * Returns the given references as a single reference, wrapping them in a {@link CompositeBytesReference} only if needed.
+     */
+    public static BytesReference of(List<BytesReference> references) {
+        if (references.isEmpty()) {
+            return BytesArray.EMPTY;
+        }
+        if (references.size() == 1) {
+            return references.get(0);
+        }
+        return new CompositeBytesReference(references.toArray(new BytesReference[0]));
+    }
+
+    @Override
+    public byte get(int index) {
+        final int i = getOffsetIndex(index);
+        return references[i].get(index - offsets[i]);
+    }
+
+    @Override
+    public int length() {
+        return offsets[references.length];
+    }
+
+    @Override
+    public BytesReference slice(int from, int length) {
+        checkSlice(from, length);
+        if (length == 0) {
+            return BytesArray.EMPTY;
+        }
+        final int to = from + length;
+        final int start = getOffsetIndex(from);
+        final int end = getOffsetIndex(to - 1);
+        final List<BytesReference> slices = new ArrayList<>(end - start + 1);
+        for (int i = start; i <= end; i++) {
+            final int sliceFrom = Math.max(from, offsets[i]) - offsets[i];
+            final int sliceTo = Math.min(to, offsets[i + 1]) - offsets[i];
+            slices.add(references[i].slice(sliceFrom, sliceTo - sliceFrom));
+        }
+        return of(slices);
+    }
+
+    @Override
+    public StreamInput streamInput() {
+        return new CompositeStreamInput(toByteBuffers());
+    }
+
+    @Override
+    public void writeTo(OutputStream os) throws IOException {
+        for (BytesReference reference : references) {
+            reference.writeTo(os);
+        }
+    }
+
+    @Override
+    public ByteBuffer[] toByteBuffers() {
+        final List<ByteBuffer> buffers = new ArrayList<>(references.length);
+        for (BytesReference reference : references) {
+            buffers.addAll(Arrays.asList(reference.toByteBuffers()));
+        }
+        return buffers.toArray(new ByteBuffer[0]);
+    }
+
+    /**
+     * Returns the index of the reference holding the byte at the given offset.
+     */
+    private int getOffsetIndex(int offset) {
+        final int i = Arrays.binarySearch(offsets, 0, references.length, offset);
+        // empty references share their offset with the next one, skip to the last reference starting at this offset
+        if (i >= 0) {
+            int index = i;
+            while (index + 1 < references.length && offsets[index + 1] == offset) {
+                index++;
+            }
+            return index;
+        }
+        return -(i + 1) - 1;
+    }
+}
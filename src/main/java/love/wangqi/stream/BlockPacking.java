@@ -0,0 +1,82 @@
+package love.wangqi.stream;
+
+/**
+ * Bit packing of the blocks written by {@link StreamOutput#writePackedIntArray(int[])} and
+ * {@link StreamOutput#writePackedLongArray(long[])}. Every block holds up to {@link #BLOCK_SIZE} values as their unsigned
+ * difference to the minimum of the block, each on the same number of bits, back to back in 64 bit words starting from the
+ * least significant bits. A full block on {@code b} bits per value takes exactly {@code 2 * b} words.
+ */
+final class BlockPacking {
+
+    static final int BLOCK_SHIFT = 7;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    /**
+     * The size of the word buffers {@link #unpack} reads from: a full block on 64 bits per value and a padding word.
+     */
+    static final int MAX_WORDS = 2 * Long.SIZE + 1;
+
+    private BlockPacking() {
+    }
+
+    /**
+     * The values of a block and the words they are packed into. A stream allocates them on its first packed array and
+     * reuses them for every block after.
+     */
+    static final class Buffers {
+        final long[] values = new long[BLOCK_SIZE];
+        final long[] words = new long[MAX_WORDS];
+    }
+
+    /**
+     * Returns the number of bits needed to write every value whose bits are or-ed together in {@code or}.
+     */
+    static int bitsRequired(long or) {
+        return Long.SIZE - Long.numberOfLeadingZeros(or);
+    }
+
+    /**
+     * Returns the number of words {@code count} values on {@code bitsPerValue} bits take.
+     */
+    static int wordCount(int count, int bitsPerValue) {
+        return (int) (((long) count * bitsPerValue + Long.SIZE - 1) >>> 6);
+    }
+
+    /**
+     * Packs {@code values[0, count)}, which must all fit on {@code bitsPerValue} bits, into {@code words}.
+     *
+     * @return the number of words written
+     */
+    static int pack(long[] values, int count, int bitsPerValue, long[] words) {
+        final int wordCount = wordCount(count, bitsPerValue);
+        for (int i = 0; i < wordCount; i++) {
+            words[i] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            final int bitOffset = i * bitsPerValue;
+            final int word = bitOffset >>> 6;
+            final int shift = bitOffset & 63;
+            words[word] |= values[i] << shift;
+            if (shift + bitsPerValue > Long.SIZE) {
+                words[word + 1] |= values[i] >>> (Long.SIZE - shift);
+            }
+        }
+        return wordCount;
+    }
+
+    /**
+     * Unpacks {@code count} values on {@code bitsPerValue} bits from {@code words} into {@code values}. {@code words} must hold
+     * one more word after the packed ones, its value does not matter. Every value is read from two neighbouring words
+     * without branching on whether it straddles them.
+     */
+    static void unpack(long[] words, int count, int bitsPerValue, long[] values) {
+        final long mask = bitsPerValue == Long.SIZE ? -1L : (1L << bitsPerValue) - 1;
+        for (int i = 0; i < count; i++) {
+            final int bitOffset = i * bitsPerValue;
+            final int word = bitOffset >>> 6;
+            final int shift = bitOffset & 63;
+            // shifting left twice leaves nothing of the next word when shift is 0, where a single shift by 64 would not
+            values[i] = ((words[word] >>> shift) | ((words[word + 1] << 1) << (63 - shift))) & mask;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package love.wangqi.stream;
+
+/**
+ * A {@link StringCache} backed by a fixed size hash-indexed table: every string maps to a single slot, and a string that
+ * does not match the one in its slot replaces it. Lookups never allocate and the memory held is bounded by the number of
+ * slots and the maximum cached length, which makes it a good fit for the low cardinality keys of large batches of
+ * documents, while high cardinality strings merely evict each other.
+ * <p>
+ * The cache can be shared by streams read on different threads: slots are replaced without locking, so a concurrent
+ * lookup may miss, but it always returns an equal string.
+ */
+public final class BoundedStringCache implements StringCache {
+
+    public static final int DEFAULT_SIZE = 1024;
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private final String[] table;
+    private final int mask;
+    private final int maxLength;
+
+    public BoundedStringCache() {
+        this(DEFAULT_SIZE, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param size the number of slots, rounded up to a power of two
+     * @param maxLength strings longer than this are never cached
+     */
+    public BoundedStringCache(int size, int maxLength) {
+        if (size <= 0 || size > 1 << 30) {
+            throw new IllegalArgumentException("size must be in [1, 2^30] but was: " + size);
+        }
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("max length must be non-negative but was: " + maxLength);
+        }
+        final int slots = Integer.highestOneBit(size - 1) << 1;
+        this.table = new String[Math.max(slots, 1)];
+        this.mask = table.length - 1;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public String get(char[] chars, int offset, int length) {
+        if (length > maxLength) {
+            return new String(chars, offset, length);
+        }
+        // same hash as String#hashCode so that the cached string's own cached hash can be compared first
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        final int slot = (hash ^ (hash >>> 16)) & mask;
+        final String cached = table[slot];
+        if (cached != null && cached.hashCode() == hash && matches(cached, chars, offset, length)) {
+            return cached;
+        }
+        final String string = new String(chars, offset, length);
+        table[slot] = string;
+        return string;
+    }
+
+    private static boolean matches(String string, char[] chars, int offset, int length) {
+        if (string.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of slots of this cache.
+     */
+    public int size() {
+        return table.length;
+    }
+}
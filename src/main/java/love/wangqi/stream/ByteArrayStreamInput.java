@@ -0,0 +1,366 @@
+package love.wangqi.stream;
+
+import love.wangqi.common.ByteUtils;
+import love.wangqi.common.bytes.BytesArray;
+import love.wangqi.common.bytes.BytesReference;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link StreamInput} that reads directly from a {@code byte[]}. It keeps its own position and limit, so primitives are
+ * decoded straight from the array with a single bounds check instead of going through {@link #readByte()} for every byte.
+ */
+public class ByteArrayStreamInput extends StreamInput {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int limit;
+    private int pos;
+    private int mark;
+
+    public ByteArrayStreamInput(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public ByteArrayStreamInput(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("offset [" + offset + "] and length [" + length
+                    + "] out of bounds for byte[] of length " + bytes.length);
+        }
+        this.bytes = bytes;
+        this.offset = offset;
+        this.limit = offset + length;
+        this.pos = offset;
+        this.mark = offset;
+    }
+
+    /**
+     * Returns the number of bytes read from this stream so far.
+     */
+    public int getPosition() {
+        return pos - offset;
+    }
+
+    /**
+     * Moves this stream to the given position, relative to the start of the wrapped range.
+     */
+    public void setPosition(int position) {
+        if (position < 0 || position > limit - offset) {
+            throw new IndexOutOfBoundsException("position [" + position + "] out of bounds for length " + (limit - offset));
+        }
+        pos = offset + position;
+    }
+
+    @Override
+    public long position() {
+        return getPosition();
+    }
+
+    @Override
+    public void seek(long position) {
+        if (position > Integer.MAX_VALUE) {
+            throw new IndexOutOfBoundsException("position [" + position + "] out of bounds for length " + (limit - offset));
+        }
+        setPosition((int) position);
+    }
+
+    @Override
+    public boolean isBackedByMemory() {
+        return true;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        if (pos >= limit) {
+            throw new EOFException();
+        }
+        return bytes[pos++];
+    }
+
+    @Override
+    public void readBytes(byte[] b, int offset, int len) throws IOException {
+        if (len < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        require(len);
+        System.arraycopy(bytes, pos, b, offset, len);
+        pos += len;
+    }
+
+    /**
+     * Returns a view of the next {@code length} bytes of the wrapped array, without copying them.
+     */
+    @Override
+    public BytesReference readBytesReference(int length) throws IOException {
+        require(length);
+        final BytesReference bytesReference = new BytesArray(bytes, pos, length);
+        pos += length;
+        return bytesReference;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(Short.BYTES);
+        final short s = ByteUtils.readShortBE(bytes, pos);
+        pos += Short.BYTES;
+        return s;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        final int i = ByteUtils.readIntBE(bytes, pos);
+        pos += Integer.BYTES;
+        return i;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        final long l = ByteUtils.readLongBE(bytes, pos);
+        pos += Long.BYTES;
+        return l;
+    }
+
+    @Override
+    public int readVInt() throws IOException {
+        if (limit - pos < 5) {
+            // might be truncated, let the byte-by-byte implementation throw the right exception
+            return super.readVInt();
+        }
+        final byte[] bytes = this.bytes;
+        byte b = bytes[pos++];
+        int i = b & 0x7F;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7F) << 7;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7F) << 14;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7F) << 21;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        if ((b & 0x80) != 0) {
+            throw new IOException("Invalid vInt ((" + Integer.toHexString(b) + " & 0x7f) << 28) | " + Integer.toHexString(i));
+        }
+        return i | ((b & 0x7F) << 28);
+    }
+
+    @Override
+    public long readVLong() throws IOException {
+        if (limit - pos < 10) {
+            return super.readVLong();
+        }
+        final byte[] bytes = this.bytes;
+        byte b = bytes[pos++];
+        long i = b & 0x7FL;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7FL) << 7;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7FL) << 14;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7FL) << 21;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7FL) << 28;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7FL) << 35;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7FL) << 42;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7FL) << 49;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        i |= (b & 0x7FL) << 56;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = bytes[pos++];
+        if (b != 0 && b != 1) {
+            throw new IOException("Invalid vlong (" + Integer.toHexString(b) + " << 63) | " + Long.toHexString(i));
+        }
+        return i | (((long) b) << 63);
+    }
+
+    @Override
+    protected String readString(int charCount) throws IOException {
+        // every char takes at least one byte, anything shorter is truncated
+        require(charCount);
+        if (Utf8Codec.asciiPrefix(bytes, pos, charCount) == charCount) {
+            final String string = new String(bytes, pos, charCount, StandardCharsets.ISO_8859_1);
+            pos += charCount;
+            return string;
+        }
+        return new String(readChars(charCount), 0, charCount);
+    }
+
+    @Override
+    protected char[] readChars(int charCount) throws IOException {
+        require(charCount);
+        final char[] chars = charBuffer(charCount);
+        pos = Utf8Codec.decode(bytes, pos, limit, chars, charCount);
+        return chars;
+    }
+
+    @Override
+    public void skipBytes(long n) throws IOException {
+        if (n > 0) {
+            require(n);
+            pos += (int) n;
+        }
+    }
+
+    @Override
+    protected void skipChars(int charCount) throws IOException {
+        require(charCount);
+        pos = Utf8Codec.skip(bytes, pos, limit, charCount);
+    }
+
+    @Override
+    public int[] readIntArray() throws IOException {
+        final int length = readArraySize();
+        require((long) length * Integer.BYTES);
+        final int[] values = new int[length];
+        ByteUtils.readIntsBE(bytes, pos, values, 0, length);
+        pos += length * Integer.BYTES;
+        return values;
+    }
+
+    @Override
+    public long[] readLongArray() throws IOException {
+        final int length = readArraySize();
+        require((long) length * Long.BYTES);
+        final long[] values = new long[length];
+        ByteUtils.readLongsBE(bytes, pos, values, 0, length);
+        pos += length * Long.BYTES;
+        return values;
+    }
+
+    @Override
+    public float[] readFloatArray() throws IOException {
+        final int length = readArraySize();
+        require((long) length * Float.BYTES);
+        final float[] values = new float[length];
+        ByteUtils.readFloatsBE(bytes, pos, values, 0, length);
+        pos += length * Float.BYTES;
+        return values;
+    }
+
+    @Override
+    public double[] readDoubleArray() throws IOException {
+        final int length = readArraySize();
+        require((long) length * Double.BYTES);
+        final double[] values = new double[length];
+        ByteUtils.readDoublesBE(bytes, pos, values, 0, length);
+        pos += length * Double.BYTES;
+        return values;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos >= limit) {
+            return -1;
+        }
+        return bytes[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= limit) {
+            return -1;
+        }
+        final int toRead = Math.min(len, limit - pos);
+        System.arraycopy(bytes, pos, b, off, toRead);
+        pos += toRead;
+        return toRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final int skipped = (int) Math.min(n, limit - pos);
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        mark = pos;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        pos = mark;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // nothing to do
+    }
+
+    @Override
+    public int available() throws IOException {
+        return limit - pos;
+    }
+
+    @Override
+    protected void ensureCanReadBytes(int length) throws EOFException {
+        final int available = limit - pos;
+        if (length > available) {
+            throw new EOFException("tried to read: " + length + " bytes but only " + available + " remaining");
+        }
+    }
+
+    private void require(long length) throws EOFException {
+        if (length > limit - pos) {
+            throw new EOFException("tried to read: " + length + " bytes but only " + (limit - pos) + " remaining");
+        }
+    }
+}
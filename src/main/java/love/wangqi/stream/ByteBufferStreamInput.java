@@ -0,0 +1,370 @@
+package love.wangqi.stream;
+
+import love.wangqi.common.bytes.ByteBufferReference;
+import love.wangqi.common.bytes.BytesReference;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link StreamInput} that reads the remaining bytes of a heap or direct {@link ByteBuffer} without copying them first.
+ * Primitives are decoded with the buffer's own big-endian accessors. The given buffer's position is left untouched, this
+ * stream works on its own view of the bytes.
+ */
+public class ByteBufferStreamInput extends StreamInput {
+
+    private final ByteBuffer buffer;
+    private int mark;
+
+    public ByteBufferStreamInput(ByteBuffer buffer) {
+        this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Returns the number of bytes read from this stream so far.
+     */
+    public int getPosition() {
+        return buffer.position();
+    }
+
+    /**
+     * Moves this stream to the given position, relative to the position the wrapped buffer had when this stream was
+     * created.
+     */
+    public void setPosition(int position) {
+        buffer.position(position);
+    }
+
+    @Override
+    public long position() {
+        return getPosition();
+    }
+
+    @Override
+    public void seek(long position) {
+        if (position < 0 || position > buffer.limit()) {
+            throw new IndexOutOfBoundsException("position [" + position + "] out of bounds for length " + buffer.limit());
+        }
+        setPosition((int) position);
+    }
+
+    @Override
+    public boolean isBackedByMemory() {
+        return true;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        if (!buffer.hasRemaining()) {
+            throw new EOFException();
+        }
+        return buffer.get();
+    }
+
+    @Override
+    public void readBytes(byte[] b, int offset, int len) throws IOException {
+        if (len < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        require(len);
+        buffer.get(b, offset, len);
+    }
+
+    /**
+     * Returns a view of the next {@code length} bytes of the wrapped buffer, without copying them.
+     */
+    @Override
+    public BytesReference readBytesReference(int length) throws IOException {
+        require(length);
+        final ByteBuffer view = buffer.duplicate();
+        view.limit(view.position() + length);
+        buffer.position(buffer.position() + length);
+        return new ByteBufferReference(view);
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        require(Short.BYTES);
+        return buffer.getShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        require(Long.BYTES);
+        return buffer.getLong();
+    }
+
+    @Override
+    public int readVInt() throws IOException {
+        if (buffer.remaining() < 5) {
+            return super.readVInt();
+        }
+        return readVInt(buffer);
+    }
+
+    @Override
+    public long readVLong() throws IOException {
+        if (buffer.remaining() < 10) {
+            return super.readVLong();
+        }
+        return readVLong(buffer);
+    }
+
+    @Override
+    protected String readString(int charCount) throws IOException {
+        require(charCount);
+        final String string = readAsciiString(buffer, charCount);
+        return string != null ? string : new String(readChars(charCount), 0, charCount);
+    }
+
+    @Override
+    protected char[] readChars(int charCount) throws IOException {
+        require(charCount);
+        return readChars(buffer, charCount, charBuffer(charCount));
+    }
+
+    @Override
+    public void skipBytes(long n) throws IOException {
+        if (n > 0) {
+            require(n);
+            buffer.position(buffer.position() + (int) n);
+        }
+    }
+
+    @Override
+    protected void skipChars(int charCount) throws IOException {
+        require(charCount);
+        buffer.position(Utf8Codec.skip(buffer, buffer.position(), buffer.limit(), charCount));
+    }
+
+    @Override
+    public int[] readIntArray() throws IOException {
+        final int length = readArraySize();
+        require((long) length * Integer.BYTES);
+        final int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return values;
+    }
+
+    @Override
+    public long[] readLongArray() throws IOException {
+        final int length = readArraySize();
+        require((long) length * Long.BYTES);
+        final long[] values = new long[length];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + length * Long.BYTES);
+        return values;
+    }
+
+    @Override
+    public float[] readFloatArray() throws IOException {
+        final int length = readArraySize();
+        require((long) length * Float.BYTES);
+        final float[] values = new float[length];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + length * Float.BYTES);
+        return values;
+    }
+
+    @Override
+    public double[] readDoubleArray() throws IOException {
+        final int length = readArraySize();
+        require((long) length * Double.BYTES);
+        final double[] values = new double[length];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + length * Double.BYTES);
+        return values;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        len = Math.min(len, buffer.remaining());
+        buffer.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final int skipped = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        mark = buffer.position();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        buffer.position(mark);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // nothing to do
+    }
+
+    @Override
+    public int available() throws IOException {
+        return buffer.remaining();
+    }
+
+    @Override
+    protected void ensureCanReadBytes(int length) throws EOFException {
+        if (length > buffer.remaining()) {
+            throw new EOFException("tried to read: " + length + " bytes but only " + buffer.remaining() + " remaining");
+        }
+    }
+
+    private void require(long length) throws EOFException {
+        if (length > buffer.remaining()) {
+            throw new EOFException("tried to read: " + length + " bytes but only " + buffer.remaining() + " remaining");
+        }
+    }
+
+    /**
+     * Decodes a vint from the given buffer, which must have at least 5 bytes remaining.
+     */
+    static int readVInt(ByteBuffer buffer) throws IOException {
+        byte b = buffer.get();
+        int i = b & 0x7F;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7F) << 7;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7F) << 14;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7F) << 21;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        if ((b & 0x80) != 0) {
+            throw new IOException("Invalid vInt ((" + Integer.toHexString(b) + " & 0x7f) << 28) | " + Integer.toHexString(i));
+        }
+        return i | ((b & 0x7F) << 28);
+    }
+
+    /**
+     * Decodes a vlong from the given buffer, which must have at least 10 bytes remaining.
+     */
+    static long readVLong(ByteBuffer buffer) throws IOException {
+        byte b = buffer.get();
+        long i = b & 0x7FL;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7FL) << 7;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7FL) << 14;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7FL) << 21;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7FL) << 28;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7FL) << 35;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7FL) << 42;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7FL) << 49;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        i |= (b & 0x7FL) << 56;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer.get();
+        if (b != 0 && b != 1) {
+            throw new IOException("Invalid vlong (" + Integer.toHexString(b) + " << 63) | " + Long.toHexString(i));
+        }
+        return i | (((long) b) << 63);
+    }
+
+    /**
+     * Reads a string of {@code charCount} ASCII characters straight from the array behind the given buffer, which must have
+     * at least {@code charCount} bytes remaining. Returns {@code null}, leaving the buffer untouched, if the buffer is not
+     * backed by an array or the string is not all ASCII.
+     */
+    static String readAsciiString(ByteBuffer buffer, int charCount) {
+        final int position = buffer.position();
+        if (!buffer.hasArray() || Utf8Codec.asciiPrefix(buffer, position, charCount) != charCount) {
+            return null;
+        }
+        final String string = new String(buffer.array(), buffer.arrayOffset() + position, charCount, StandardCharsets.ISO_8859_1);
+        buffer.position(position + charCount);
+        return string;
+    }
+
+    /**
+     * Decodes {@code charCount} characters from the given buffer into {@code chars}, moving the buffer past them.
+     */
+    static char[] readChars(ByteBuffer buffer, int charCount, char[] chars) throws IOException {
+        buffer.position(Utf8Codec.decode(buffer, buffer.position(), buffer.limit(), chars, charCount));
+        return chars;
+    }
+}
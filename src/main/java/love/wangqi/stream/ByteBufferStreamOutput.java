@@ -0,0 +1,292 @@
+package love.wangqi.stream;
+
+import love.wangqi.common.ByteUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A {@link StreamOutput} that writes into a chain of fixed size heap or direct {@link ByteBuffer}s. When a buffer is full the
+ * next one is appended to the chain, so nothing that has been written is ever copied. The written bytes are handed out as
+ * buffer views with {@link #toByteBuffers()}, ready to be passed to a gathering channel write.
+ */
+public class ByteBufferStreamOutput extends StreamOutput {
+
+    public static final int DEFAULT_BUFFER_SIZE = BytesStreamOutput.PAGE_SIZE;
+
+    private final IntFunction<ByteBuffer> allocator;
+    private final int bufferSize;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private ByteBuffer current;
+    private int currentIndex;
+
+    /**
+     * Creates a stream that writes into heap buffers of {@link #DEFAULT_BUFFER_SIZE} bytes.
+     */
+    public ByteBufferStreamOutput() {
+        this(DEFAULT_BUFFER_SIZE, false);
+    }
+
+    /**
+     * @param bufferSize the size of every buffer in the chain
+     * @param direct whether to allocate direct buffers rather than heap buffers
+     */
+    public ByteBufferStreamOutput(int bufferSize, boolean direct) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive but was: " + bufferSize);
+        }
+        this.allocator = direct ? ByteBuffer::allocateDirect : ByteBuffer::allocate;
+        this.bufferSize = bufferSize;
+        this.current = nextBuffer(0);
+    }
+
+    @Override
+    public long position() throws IOException {
+        return (long) currentIndex * bufferSize + current.position();
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("position must be non-negative but was: " + position);
+        }
+        final long index = position / bufferSize;
+        if (index > Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("position " + position + " is too large");
+        }
+        current = nextBuffer((int) index);
+        for (int i = 0; i < buffers.size(); i++) {
+            buffers.get(i).position(i < index ? bufferSize : 0);
+        }
+        current.position((int) (position % bufferSize));
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public long size() {
+        return (long) currentIndex * bufferSize + current.position();
+    }
+
+    @Override
+    public void writeByte(byte b) throws IOException {
+        if (!current.hasRemaining()) {
+            current = nextBuffer(currentIndex + 1);
+        }
+        current.put(b);
+    }
+
+    @Override
+    public void writeBytes(byte[] b, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!current.hasRemaining()) {
+                current = nextBuffer(currentIndex + 1);
+            }
+            final int toCopy = Math.min(length, current.remaining());
+            current.put(b, offset, toCopy);
+            offset += toCopy;
+            length -= toCopy;
+        }
+    }
+
+    @Override
+    public void writeInt(int i) throws IOException {
+        if (current.remaining() >= Integer.BYTES) {
+            current.putInt(i);
+        } else {
+            super.writeInt(i);
+        }
+    }
+
+    @Override
+    public void writeLong(long i) throws IOException {
+        if (current.remaining() >= Long.BYTES) {
+            current.putLong(i);
+        } else {
+            super.writeLong(i);
+        }
+    }
+
+    @Override
+    public void writeFloat(float v) throws IOException {
+        if (current.remaining() >= Float.BYTES) {
+            current.putFloat(v);
+        } else {
+            super.writeFloat(v);
+        }
+    }
+
+    @Override
+    public void writeDouble(double v) throws IOException {
+        if (current.remaining() >= Double.BYTES) {
+            current.putDouble(v);
+        } else {
+            super.writeDouble(v);
+        }
+    }
+
+    @Override
+    public void writeVInt(int i) throws IOException {
+        if (current.remaining() < 5) {
+            super.writeVInt(i);
+        } else if (current.hasArray()) {
+            final int arrayOffset = current.arrayOffset();
+            current.position(ByteUtils.writeVInt(i, current.array(), arrayOffset + current.position()) - arrayOffset);
+        } else {
+            while ((i & ~0x7F) != 0) {
+                current.put((byte) (i | 0x80));
+                i >>>= 7;
+            }
+            current.put((byte) i);
+        }
+    }
+
+    @Override
+    void writeVLongNoCheck(long i) throws IOException {
+        if (current.remaining() < 10) {
+            super.writeVLongNoCheck(i);
+        } else if (current.hasArray()) {
+            final int arrayOffset = current.arrayOffset();
+            current.position(ByteUtils.writeVLong(i, current.array(), arrayOffset + current.position()) - arrayOffset);
+        } else {
+            while ((i & ~0x7FL) != 0) {
+                current.put((byte) (i | 0x80));
+                i >>>= 7;
+            }
+            current.put((byte) i);
+        }
+    }
+
+    @Override
+    public void writeString(CharSequence str) throws IOException {
+        final int charCount = str.length();
+        // the vint takes at most 5 bytes, every char at most 3
+        if (!current.hasArray() || Utf8Codec.MAX_BYTES_PER_CHAR * (long) charCount + 5 > current.remaining()) {
+            super.writeString(str);
+            return;
+        }
+        final int arrayOffset = current.arrayOffset();
+        int offset = ByteUtils.writeVInt(charCount, current.array(), arrayOffset + current.position());
+        offset = Utf8Codec.encode(str, 0, charCount, current.array(), offset);
+        current.position(offset - arrayOffset);
+    }
+
+    @Override
+    public void writeIntArray(int[] values) throws IOException {
+        writeVInt(values.length);
+        int offset = 0;
+        while (offset < values.length) {
+            final int length = Math.min(values.length - offset, current.remaining() / Integer.BYTES);
+            if (length == 0) {
+                writeInt(values[offset++]);
+                continue;
+            }
+            current.asIntBuffer().put(values, offset, length);
+            current.position(current.position() + length * Integer.BYTES);
+            offset += length;
+        }
+    }
+
+    @Override
+    public void writeLongArray(long[] values) throws IOException {
+        writeVInt(values.length);
+        int offset = 0;
+        while (offset < values.length) {
+            final int length = Math.min(values.length - offset, current.remaining() / Long.BYTES);
+            if (length == 0) {
+                writeLong(values[offset++]);
+                continue;
+            }
+            current.asLongBuffer().put(values, offset, length);
+            current.position(current.position() + length * Long.BYTES);
+            offset += length;
+        }
+    }
+
+    @Override
+    public void writeFloatArray(float[] values) throws IOException {
+        writeVInt(values.length);
+        int offset = 0;
+        while (offset < values.length) {
+            final int length = Math.min(values.length - offset, current.remaining() / Float.BYTES);
+            if (length == 0) {
+                writeFloat(values[offset++]);
+                continue;
+            }
+            current.asFloatBuffer().put(values, offset, length);
+            current.position(current.position() + length * Float.BYTES);
+            offset += length;
+        }
+    }
+
+    @Override
+    public void writeDoubleArray(double[] values) throws IOException {
+        writeVInt(values.length);
+        int offset = 0;
+        while (offset < values.length) {
+            final int length = Math.min(values.length - offset, current.remaining() / Double.BYTES);
+            if (length == 0) {
+                // the value straddles two buffers
+                writeDouble(values[offset++]);
+                continue;
+            }
+            current.asDoubleBuffer().put(values, offset, length);
+            current.position(current.position() + length * Double.BYTES);
+            offset += length;
+        }
+    }
+
+    /**
+     * Returns read-only views of the written bytes, one per buffer in the chain. The views share the buffers of this stream
+     * and are only valid until the stream is written to again or {@link #reset()}.
+     */
+    public ByteBuffer[] toByteBuffers() {
+        final ByteBuffer[] views = new ByteBuffer[currentIndex + 1];
+        for (int i = 0; i <= currentIndex; i++) {
+            final ByteBuffer view = buffers.get(i).duplicate();
+            view.flip();
+            views[i] = view.asReadOnlyBuffer();
+        }
+        return views;
+    }
+
+    /**
+     * Resets the stream to position 0. The buffers in the chain are kept so that the next message written into this stream
+     * does not allocate again.
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i <= currentIndex; i++) {
+            buffers.get(i).clear();
+        }
+        current = nextBuffer(0);
+        clearStringDictionary();
+    }
+
+    @Override
+    public void flush() {
+        // nothing to do
+    }
+
+    /**
+     * Releases all buffers held by this stream but the first one.
+     */
+    @Override
+    public void close() {
+        buffers.subList(1, buffers.size()).clear();
+        current = nextBuffer(0);
+    }
+
+    private ByteBuffer nextBuffer(int index) {
+        while (buffers.size() <= index) {
+            buffers.add(allocator.apply(bufferSize));
+        }
+        currentIndex = index;
+        final ByteBuffer buffer = buffers.get(index);
+        buffer.clear();
+        return buffer;
+    }
+}
@@ -0,0 +1,261 @@
+package love.wangqi.stream;
+
+import love.wangqi.common.ByteUtils;
+import love.wangqi.common.bytes.BytesArray;
+import love.wangqi.common.bytes.BytesReference;
+import love.wangqi.common.bytes.CompositeBytesReference;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link StreamOutput} that writes into memory. The bytes are stored in fixed size pages so growing the stream never copies
+ * what has already been written, and {@link #reset()} keeps the allocated pages around so a single instance can be reused
+ * for many messages.
+ */
+public class BytesStreamOutput extends StreamOutput {
+
+    static final int PAGE_SHIFT = 14;
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final byte[][] EMPTY_PAGES = new byte[0][];
+
+    private byte[][] pages;
+    private int pageCount;
+    private int count;
+
+    /**
+     * Create a non recycling {@link BytesStreamOutput} with an initial capacity of one page.
+     */
+    public BytesStreamOutput() {
+        this(PAGE_SIZE);
+    }
+
+    /**
+     * Create a non recycling {@link BytesStreamOutput} with enough initial pages acquired to satisfy the capacity given by
+     * expected size.
+     *
+     * @param expectedSize the expected maximum size of the stream in bytes.
+     */
+    public BytesStreamOutput(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expected size must be non-negative but was: " + expectedSize);
+        }
+        this.pages = EMPTY_PAGES;
+        ensureCapacity(expectedSize);
+    }
+
+    @Override
+    public long position() throws IOException {
+        return count;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("position must be non-negative but was: " + position);
+        }
+        ensureCapacity(position);
+        count = (int) position;
+    }
+
+    @Override
+    public void writeByte(byte b) throws IOException {
+        final int pageIndex = count >>> PAGE_SHIFT;
+        if (pageIndex >= pageCount) {
+            ensureCapacity(count + 1L);
+        }
+        pages[pageIndex][count & PAGE_MASK] = b;
+        count++;
+    }
+
+    @Override
+    public void writeBytes(byte[] b, int offset, int length) throws IOException {
+        // nothing to copy
+        if (length == 0) {
+            return;
+        }
+        // illegal args: offset and/or length exceed array size
+        if (b.length < (offset + length)) {
+            throw new IllegalArgumentException("Illegal offset " + offset + "/length " + length + " for byte[] of length " + b.length);
+        }
+        ensureCapacity(((long) count) + length);
+        int remaining = length;
+        while (remaining > 0) {
+            final int pageOffset = count & PAGE_MASK;
+            final int toCopy = Math.min(remaining, PAGE_SIZE - pageOffset);
+            System.arraycopy(b, offset, pages[count >>> PAGE_SHIFT], pageOffset, toCopy);
+            offset += toCopy;
+            remaining -= toCopy;
+            count += toCopy;
+        }
+    }
+
+    @Override
+    public void writeInt(int i) throws IOException {
+        final int pageOffset = count & PAGE_MASK;
+        if (pageOffset + Integer.BYTES > PAGE_SIZE || (count >>> PAGE_SHIFT) >= pageCount) {
+            super.writeInt(i);
+            return;
+        }
+        ByteUtils.writeIntBE(i, pages[count >>> PAGE_SHIFT], pageOffset);
+        count += Integer.BYTES;
+    }
+
+    @Override
+    public void writeLong(long i) throws IOException {
+        final int pageOffset = count & PAGE_MASK;
+        if (pageOffset + Long.BYTES > PAGE_SIZE || (count >>> PAGE_SHIFT) >= pageCount) {
+            super.writeLong(i);
+            return;
+        }
+        ByteUtils.writeLongBE(i, pages[count >>> PAGE_SHIFT], pageOffset);
+        count += Long.BYTES;
+    }
+
+    @Override
+    public void writeVInt(int i) throws IOException {
+        final int pageOffset = count & PAGE_MASK;
+        if (pageOffset + 5 > PAGE_SIZE || (count >>> PAGE_SHIFT) >= pageCount) {
+            super.writeVInt(i);
+            return;
+        }
+        count += ByteUtils.writeVInt(i, pages[count >>> PAGE_SHIFT], pageOffset) - pageOffset;
+    }
+
+    @Override
+    void writeVLongNoCheck(long i) throws IOException {
+        final int pageOffset = count & PAGE_MASK;
+        if (pageOffset + 10 > PAGE_SIZE || (count >>> PAGE_SHIFT) >= pageCount) {
+            super.writeVLongNoCheck(i);
+            return;
+        }
+        count += ByteUtils.writeVLong(i, pages[count >>> PAGE_SHIFT], pageOffset) - pageOffset;
+    }
+
+    @Override
+    public void writeString(CharSequence str) throws IOException {
+        final int charCount = str.length();
+        final int pageOffset = count & PAGE_MASK;
+        // the vint takes at most 5 bytes, every char at most 3
+        if (Utf8Codec.MAX_BYTES_PER_CHAR * (long) charCount + 5 > PAGE_SIZE - pageOffset || (count >>> PAGE_SHIFT) >= pageCount) {
+            super.writeString(str);
+            return;
+        }
+        final byte[] page = pages[count >>> PAGE_SHIFT];
+        int offset = ByteUtils.writeVInt(charCount, page, pageOffset);
+        offset = Utf8Codec.encode(str, 0, charCount, page, offset);
+        count += offset - pageOffset;
+    }
+
+    /**
+     * Resets the stream to position 0. The pages that were acquired are kept so that the next message written into this
+     * stream does not allocate again, the string dictionary is cleared since the next message is read by a new reader.
+     */
+    @Override
+    public void reset() {
+        count = 0;
+        clearStringDictionary();
+    }
+
+    @Override
+    public void flush() {
+        // nothing to do
+    }
+
+    /**
+     * Releases all pages held by this stream.
+     */
+    @Override
+    public void close() {
+        pages = EMPTY_PAGES;
+        pageCount = 0;
+        count = 0;
+    }
+
+    /**
+     * Returns the current size of the buffer.
+     *
+     * @return the value of the <code>count</code> field, which is the number of valid bytes in this output stream.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns a {@link BytesReference} over the written bytes that shares the pages of this stream. The reference is only
+     * valid until the stream is written to again or {@link #reset()}.
+     */
+    public BytesReference bytes() {
+        final int numPages = (count + PAGE_MASK) >>> PAGE_SHIFT;
+        final List<BytesReference> references = new ArrayList<>(numPages);
+        for (int i = 0; i < numPages; i++) {
+            references.add(new BytesArray(pages[i], 0, Math.min(PAGE_SIZE, count - (i << PAGE_SHIFT))));
+        }
+        return CompositeBytesReference.of(references);
+    }
+
+    /**
+     * Returns the written bytes as read-only {@link ByteBuffer}s, one per page, sharing the pages of this stream. The views
+     * are only valid until the stream is written to again or {@link #reset()}.
+     */
+    public ByteBuffer[] toByteBuffers() {
+        final int numBuffers = (count + PAGE_MASK) >>> PAGE_SHIFT;
+        final ByteBuffer[] buffers = new ByteBuffer[numBuffers];
+        for (int i = 0; i < numBuffers; i++) {
+            final int length = Math.min(PAGE_SIZE, count - (i << PAGE_SHIFT));
+            buffers[i] = ByteBuffer.wrap(pages[i], 0, length).slice().asReadOnlyBuffer();
+        }
+        return buffers;
+    }
+
+    /**
+     * Writes the content of this stream to the given {@link OutputStream} page by page, without an intermediate copy.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        int remaining = count;
+        for (int i = 0; remaining > 0; i++) {
+            final int length = Math.min(PAGE_SIZE, remaining);
+            out.write(pages[i], 0, length);
+            remaining -= length;
+        }
+    }
+
+    /**
+     * Returns a copy of the written bytes as a single array.
+     */
+    public byte[] copyBytes() {
+        final byte[] bytes = new byte[count];
+        int offset = 0;
+        for (int i = 0; offset < count; i++) {
+            final int length = Math.min(PAGE_SIZE, count - offset);
+            System.arraycopy(pages[i], 0, bytes, offset, length);
+            offset += length;
+        }
+        return bytes;
+    }
+
+    private void ensureCapacity(long offset) {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(getClass().getSimpleName() + " cannot hold more than 2GB of data");
+        }
+        final int requiredPages = (int) ((offset + PAGE_MASK) >>> PAGE_SHIFT);
+        if (requiredPages <= pageCount) {
+            return;
+        }
+        if (requiredPages > pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(requiredPages, pages.length << 1));
+        }
+        for (int i = pageCount; i < requiredPages; i++) {
+            if (pages[i] == null) {
+                pages[i] = new byte[PAGE_SIZE];
+            }
+        }
+        pageCount = requiredPages;
+    }
+}
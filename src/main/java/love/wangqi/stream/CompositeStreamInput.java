@@ -0,0 +1,375 @@
+package love.wangqi.stream;
+
+import love.wangqi.common.bytes.ByteBufferReference;
+import love.wangqi.common.bytes.BytesReference;
+import love.wangqi.common.bytes.CompositeBytesReference;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link StreamInput} that reads across an ordered sequence of {@link ByteBuffer}s or {@code byte[]} pages as if they
+ * were a single contiguous stream, for instance the pages handed out by {@link BytesStreamOutput#toByteBuffers()}. Nothing
+ * is copied up-front: primitives that are fully contained in the current buffer are decoded from it directly, only values
+ * straddling a buffer boundary are assembled byte by byte.
+ */
+public class CompositeStreamInput extends StreamInput {
+
+    private final ByteBuffer[] buffers;
+    /**
+     * The position in the stream of the first byte of every buffer, followed by the total length.
+     */
+    private final long[] offsets;
+    private int index;
+    private ByteBuffer current;
+    private long mark;
+
+    public CompositeStreamInput(ByteBuffer... buffers) {
+        this(Arrays.asList(buffers));
+    }
+
+    /**
+     * Creates a stream over the remaining bytes of the given buffers. The positions of the given buffers are left untouched,
+     * this stream works on its own views of the bytes.
+     */
+    public CompositeStreamInput(List<ByteBuffer> buffers) {
+        this.buffers = new ByteBuffer[buffers.size()];
+        this.offsets = new long[buffers.size() + 1];
+        for (int i = 0; i < this.buffers.length; i++) {
+            this.buffers[i] = buffers.get(i).slice().order(ByteOrder.BIG_ENDIAN);
+            this.offsets[i + 1] = this.offsets[i] + this.buffers[i].remaining();
+        }
+        this.current = this.buffers.length == 0 ? ByteBuffer.allocate(0) : this.buffers[0];
+    }
+
+    /**
+     * Creates a stream over the first {@code length} bytes of the given pages, without copying them.
+     */
+    public static CompositeStreamInput ofPages(byte[][] pages, long length) {
+        final ByteBuffer[] buffers = new ByteBuffer[pages.length];
+        long remaining = length;
+        for (int i = 0; i < pages.length; i++) {
+            final int pageLength = (int) Math.min(pages[i].length, remaining);
+            buffers[i] = ByteBuffer.wrap(pages[i], 0, pageLength);
+            remaining -= pageLength;
+        }
+        if (remaining > 0) {
+            throw new IllegalArgumentException("pages hold less than " + length + " bytes");
+        }
+        return new CompositeStreamInput(buffers);
+    }
+
+    /**
+     * Returns the number of bytes that can be read from this stream in total.
+     */
+    public long length() {
+        return offsets[buffers.length];
+    }
+
+    /**
+     * Returns the number of bytes read from this stream so far.
+     */
+    @Override
+    public long position() {
+        return offsets[index] + current.position();
+    }
+
+    /**
+     * Moves this stream to the given position.
+     */
+    @Override
+    public void seek(long position) {
+        if (position < 0 || position > length()) {
+            throw new IndexOutOfBoundsException("position [" + position + "] out of bounds for length " + length());
+        }
+        if (buffers.length == 0) {
+            return;
+        }
+        int i = Arrays.binarySearch(offsets, 0, buffers.length, position);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        index = i;
+        current = buffers[i];
+        current.position((int) (position - offsets[i]));
+    }
+
+    @Override
+    public boolean isBackedByMemory() {
+        return true;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        if (!current.hasRemaining() && !advance()) {
+            throw new EOFException();
+        }
+        return current.get();
+    }
+
+    @Override
+    public void readBytes(byte[] b, int offset, int len) throws IOException {
+        if (len < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len > remaining()) {
+            throw new EOFException("tried to read: " + len + " bytes but only " + remaining() + " remaining");
+        }
+        while (len > 0) {
+            if (!current.hasRemaining()) {
+                advance();
+            }
+            final int toCopy = Math.min(len, current.remaining());
+            current.get(b, offset, toCopy);
+            offset += toCopy;
+            len -= toCopy;
+        }
+    }
+
+    /**
+     * Returns a view of the next {@code length} bytes of the underlying buffers, without copying them.
+     */
+    @Override
+    public BytesReference readBytesReference(int length) throws IOException {
+        if (length < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length > remaining()) {
+            throw new EOFException("tried to read: " + length + " bytes but only " + remaining() + " remaining");
+        }
+        final List<BytesReference> references = new ArrayList<>(1);
+        while (length > 0) {
+            if (!current.hasRemaining()) {
+                advance();
+            }
+            final int toSlice = Math.min(length, current.remaining());
+            final ByteBuffer view = current.duplicate();
+            view.limit(view.position() + toSlice);
+            references.add(new ByteBufferReference(view));
+            current.position(current.position() + toSlice);
+            length -= toSlice;
+        }
+        return CompositeBytesReference.of(references);
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        final ByteBuffer buffer = currentFor(Short.BYTES);
+        return buffer == null ? super.readShort() : buffer.getShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        final ByteBuffer buffer = currentFor(Integer.BYTES);
+        return buffer == null ? super.readInt() : buffer.getInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        final ByteBuffer buffer = currentFor(Long.BYTES);
+        return buffer == null ? super.readLong() : buffer.getLong();
+    }
+
+    @Override
+    public int readVInt() throws IOException {
+        final ByteBuffer buffer = currentFor(5);
+        return buffer == null ? super.readVInt() : ByteBufferStreamInput.readVInt(buffer);
+    }
+
+    @Override
+    public long readVLong() throws IOException {
+        final ByteBuffer buffer = currentFor(10);
+        return buffer == null ? super.readVLong() : ByteBufferStreamInput.readVLong(buffer);
+    }
+
+    @Override
+    protected String readString(int charCount) throws IOException {
+        final ByteBuffer buffer = currentFor(charCount);
+        if (buffer == null) {
+            return super.readString(charCount);
+        }
+        final String string = ByteBufferStreamInput.readAsciiString(buffer, charCount);
+        return string != null ? string : new String(readChars(charCount), 0, charCount);
+    }
+
+    @Override
+    protected char[] readChars(int charCount) throws IOException {
+        ByteBuffer buffer = currentFor(charCount);
+        if (buffer == null) {
+            return super.readChars(charCount);
+        }
+        if (Utf8Codec.asciiPrefix(buffer, buffer.position(), charCount) != charCount) {
+            buffer = currentFor((long) Utf8Codec.MAX_BYTES_PER_CHAR * charCount);
+            if (buffer == null) {
+                // the encoded string may straddle two buffers
+                return super.readChars(charCount);
+            }
+        }
+        return ByteBufferStreamInput.readChars(buffer, charCount, charBuffer(charCount));
+    }
+
+    @Override
+    public int[] readIntArray() throws IOException {
+        final long start = position();
+        final int length = readArraySize();
+        final ByteBuffer buffer = currentFor((long) length * Integer.BYTES);
+        if (buffer == null) {
+            seek(start);
+            return super.readIntArray();
+        }
+        final int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + length * Integer.BYTES);
+        return values;
+    }
+
+    @Override
+    public long[] readLongArray() throws IOException {
+        final long start = position();
+        final int length = readArraySize();
+        final ByteBuffer buffer = currentFor((long) length * Long.BYTES);
+        if (buffer == null) {
+            seek(start);
+            return super.readLongArray();
+        }
+        final long[] values = new long[length];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + length * Long.BYTES);
+        return values;
+    }
+
+    @Override
+    public float[] readFloatArray() throws IOException {
+        final long start = position();
+        final int length = readArraySize();
+        final ByteBuffer buffer = currentFor((long) length * Float.BYTES);
+        if (buffer == null) {
+            seek(start);
+            return super.readFloatArray();
+        }
+        final float[] values = new float[length];
+        buffer.asFloatBuffer().get(values);
+        buffer.position(buffer.position() + length * Float.BYTES);
+        return values;
+    }
+
+    @Override
+    public double[] readDoubleArray() throws IOException {
+        final long start = position();
+        final int length = readArraySize();
+        final ByteBuffer buffer = currentFor((long) length * Double.BYTES);
+        if (buffer == null) {
+            seek(start);
+            return super.readDoubleArray();
+        }
+        final double[] values = new double[length];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + length * Double.BYTES);
+        return values;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!current.hasRemaining() && !advance()) {
+            return -1;
+        }
+        return current.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        final long remaining = remaining();
+        if (remaining == 0) {
+            return -1;
+        }
+        len = (int) Math.min(len, remaining);
+        readBytes(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final long skipped = Math.min(n, remaining());
+        seek(position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        mark = position();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        seek(mark);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // nothing to do
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(remaining(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected void ensureCanReadBytes(int length) throws EOFException {
+        final long remaining = remaining();
+        if (length > remaining) {
+            throw new EOFException("tried to read: " + length + " bytes but only " + remaining + " remaining");
+        }
+    }
+
+    private long remaining() {
+        return length() - position();
+    }
+
+    /**
+     * Moves to the next non-empty buffer.
+     *
+     * @return whether there was one
+     */
+    private boolean advance() {
+        for (int i = index + 1; i < buffers.length; i++) {
+            if (buffers[i].limit() > 0) {
+                index = i;
+                current = buffers[i];
+                current.position(0);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the current buffer if the next {@code size} bytes are all in it, moving past exhausted buffers first, or
+     * {@code null} if the bytes straddle two buffers or go past the end of the stream.
+     */
+    private ByteBuffer currentFor(long size) {
+        if (!current.hasRemaining()) {
+            advance();
+        }
+        return current.remaining() >= size ? current : null;
+    }
+}
@@ -0,0 +1,62 @@
+package love.wangqi.stream;
+
+/**
+ * Registers application types with {@link StreamOutput#writeGenericValue(Object)} and
+ * {@link StreamInput#readGenericValue()}, next to the built-in ones. Every type gets its own type byte, which is written
+ * before the value, and a writer/reader pair for the value itself:
+ * <pre><code>
+ * GenericValueRegistry.register(64, GeoPoint.class, (out, point) -&gt; point.writeTo(out), GeoPoint::new);
+ * </code></pre>
+ * A registered type is also used for its subclasses and implementations that have no writer of their own. Types should be
+ * registered once, at startup, before any value of theirs is written or read, and both sides of the wire must agree on the
+ * type bytes.
+ */
+public final class GenericValueRegistry {
+
+    /**
+     * The first type byte available to applications, the ones below are reserved for built-in types.
+     */
+    public static final int FIRST_CUSTOM_TYPE = 64;
+
+    /**
+     * The last type byte available to applications.
+     */
+    public static final int LAST_CUSTOM_TYPE = StreamInput.GENERIC_TYPE_COUNT - 1;
+
+    private GenericValueRegistry() {
+    }
+
+    /**
+     * Registers a type with the given type byte.
+     *
+     * @throws IllegalArgumentException if the type byte is out of the application range or already taken, or the type
+     * already has a writer
+     */
+    public static synchronized <T> void register(int typeByte, Class<T> type, Writeable.Writer<T> writer,
+                                                 Writeable.Reader<? extends T> reader) {
+        if (typeByte < FIRST_CUSTOM_TYPE || typeByte > LAST_CUSTOM_TYPE) {
+            throw new IllegalArgumentException("type byte must be in [" + FIRST_CUSTOM_TYPE + ", " + LAST_CUSTOM_TYPE
+                + "] but was: " + typeByte);
+        }
+        if (StreamInput.hasGenericValueReader(typeByte)) {
+            throw new IllegalArgumentException("type byte [" + typeByte + "] is already registered");
+        }
+        if (StreamOutput.hasWriter(type)) {
+            throw new IllegalArgumentException("type [" + type.getName() + "] is already registered");
+        }
+        final byte tag = (byte) typeByte;
+        StreamOutput.registerWriter(type, (out, value) -> {
+            out.writeByte(tag);
+            writer.write(out, type.cast(value));
+        });
+        StreamInput.registerGenericValueReader(typeByte, reader);
+    }
+
+    /**
+     * Returns whether values of exactly the given type can be written with {@link StreamOutput#writeGenericValue(Object)}
+     * without relying on a super type.
+     */
+    public static boolean isRegistered(Class<?> type) {
+        return StreamOutput.hasWriter(type);
+    }
+}
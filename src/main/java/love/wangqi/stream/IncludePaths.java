@@ -0,0 +1,77 @@
+package love.wangqi.stream;
+
+import love.wangqi.common.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The dotted paths passed to {@link StreamInput#readMap(Set)} as a tree of keys. A node either includes everything below
+ * it, when a path ends there, or only its children.
+ */
+final class IncludePaths {
+
+    private static final IncludePaths ALL = new IncludePaths(null);
+
+    @Nullable
+    private final Map<String, IncludePaths> children;
+
+    private IncludePaths(@Nullable Map<String, IncludePaths> children) {
+        this.children = children;
+    }
+
+    static IncludePaths compile(Set<String> paths) {
+        final Map<String, Object> tree = new HashMap<>();
+        for (String path : paths) {
+            Map<String, Object> node = tree;
+            final String[] keys = path.split("\\.", -1);
+            for (int i = 0; i < keys.length; i++) {
+                if (i == keys.length - 1) {
+                    // a shorter path includes everything the longer ones do
+                    node.put(keys[i], ALL);
+                    break;
+                }
+                final Object child = node.get(keys[i]);
+                if (child == ALL) {
+                    break;
+                }
+                if (child == null) {
+                    final Map<String, Object> map = new HashMap<>();
+                    node.put(keys[i], map);
+                    node = map;
+                } else {
+                    @SuppressWarnings("unchecked")
+                    final Map<String, Object> map = (Map<String, Object>) child;
+                    node = map;
+                }
+            }
+        }
+        return build(tree);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IncludePaths build(Map<String, Object> tree) {
+        final Map<String, IncludePaths> children = new HashMap<>(tree.size() * 2);
+        for (Map.Entry<String, Object> entry : tree.entrySet()) {
+            final Object child = entry.getValue();
+            children.put(entry.getKey(), child == ALL ? ALL : build((Map<String, Object>) child));
+        }
+        return new IncludePaths(children);
+    }
+
+    /**
+     * Returns whether everything below this node is included.
+     */
+    boolean includesAll() {
+        return children == null;
+    }
+
+    /**
+     * Returns the node of the given key, or {@code null} if nothing below it is included.
+     */
+    @Nullable
+    IncludePaths child(String key) {
+        return children == null ? this : children.get(key);
+    }
+}
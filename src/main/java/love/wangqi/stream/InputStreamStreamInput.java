@@ -1,8 +1,12 @@
 package love.wangqi.stream;
 
+import love.wangqi.common.ByteUtils;
+
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * @author: wangqi
@@ -15,6 +19,16 @@ public class InputStreamStreamInput extends StreamInput {
     private final InputStream is;
     private final long sizeLimit;
 
+    /**
+     * Read buffer, {@code null} if this stream is not buffered. Bytes in {@code [pos, count)} have been read from the
+     * underlying stream but not consumed yet, bytes from {@code markPos} are kept for {@link #reset()}.
+     */
+    private byte[] buffer;
+    private int pos;
+    private int count;
+    private int markPos = -1;
+    private int markLimit;
+
     /**
      * Creates a new InputStreamStreamInput with unlimited size
      * @param is the input stream to wrap
@@ -29,16 +43,40 @@ public class InputStreamStreamInput extends StreamInput {
      * @param sizeLimit a hard limit of the number of bytes in the given input stream. This is used for internal input validation
      */
     public InputStreamStreamInput(InputStream is, long sizeLimit) {
+        this(is, sizeLimit, 0);
+    }
+
+    /**
+     * Creates a new InputStreamStreamInput with a size limit that reads ahead from the given stream into an internal buffer.
+     * Once wrapped the input stream must not be read directly anymore since this stream may have consumed bytes ahead of
+     * what has been returned.
+     * @param is the input stream to wrap
+     * @param sizeLimit a hard limit of the number of bytes in the given input stream. This is used for internal input validation
+     * @param bufferSize the size of the internal read buffer, or {@code 0} to read from the input stream byte by byte
+     */
+    public InputStreamStreamInput(InputStream is, long sizeLimit, int bufferSize) {
         this.is = is;
         if (sizeLimit < 0) {
             throw new IllegalArgumentException("size limit must be positive");
         }
+        if (bufferSize < 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
         this.sizeLimit = sizeLimit;
-
+        this.buffer = bufferSize == 0 ? null : new byte[bufferSize];
     }
 
     @Override
     public byte readByte() throws IOException {
+        if (buffer != null) {
+            if (pos >= count) {
+                fill();
+                if (pos >= count) {
+                    throw new EOFException();
+                }
+            }
+            return buffer[pos++];
+        }
         int ch = is.read();
         if (ch < 0)
             throw new EOFException();
@@ -49,25 +87,185 @@ public class InputStreamStreamInput extends StreamInput {
     public void readBytes(byte[] b, int offset, int len) throws IOException {
         if (len < 0)
             throw new IndexOutOfBoundsException();
-        final int read = Streams.readFully(is, b, offset, len);
+        final int read = Streams.readFully(this, b, offset, len);
         if (read != len) {
             throw new EOFException();
         }
     }
 
+    @Override
+    public short readShort() throws IOException {
+        if (count - pos >= Short.BYTES) {
+            final short s = ByteUtils.readShortBE(buffer, pos);
+            pos += Short.BYTES;
+            return s;
+        }
+        return super.readShort();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        if (count - pos >= Integer.BYTES) {
+            final int i = ByteUtils.readIntBE(buffer, pos);
+            pos += Integer.BYTES;
+            return i;
+        }
+        return super.readInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        if (count - pos >= Long.BYTES) {
+            final long l = ByteUtils.readLongBE(buffer, pos);
+            pos += Long.BYTES;
+            return l;
+        }
+        return super.readLong();
+    }
+
+    @Override
+    public int readVInt() throws IOException {
+        if (count - pos < 5) {
+            return super.readVInt();
+        }
+        final byte[] buffer = this.buffer;
+        byte b = buffer[pos++];
+        int i = b & 0x7F;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7F) << 7;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7F) << 14;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7F) << 21;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        if ((b & 0x80) != 0) {
+            throw new IOException("Invalid vInt ((" + Integer.toHexString(b) + " & 0x7f) << 28) | " + Integer.toHexString(i));
+        }
+        return i | ((b & 0x7F) << 28);
+    }
+
+    @Override
+    public long readVLong() throws IOException {
+        if (count - pos < 10) {
+            return super.readVLong();
+        }
+        final byte[] buffer = this.buffer;
+        byte b = buffer[pos++];
+        long i = b & 0x7FL;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7FL) << 7;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7FL) << 14;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7FL) << 21;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7FL) << 28;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7FL) << 35;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7FL) << 42;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7FL) << 49;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        i |= (b & 0x7FL) << 56;
+        if ((b & 0x80) == 0) {
+            return i;
+        }
+        b = buffer[pos++];
+        if (b != 0 && b != 1) {
+            throw new IOException("Invalid vlong (" + Integer.toHexString(b) + " << 63) | " + Long.toHexString(i));
+        }
+        return i | (((long) b) << 63);
+    }
+
+    @Override
+    protected String readString(int charCount) throws IOException {
+        if (charCount > count - pos) {
+            // the encoded string extends past the buffered bytes, let the generic path read it through the buffer
+            return super.readString(charCount);
+        }
+        if (Utf8Codec.asciiPrefix(buffer, pos, charCount) == charCount) {
+            final String string = new String(buffer, pos, charCount, StandardCharsets.ISO_8859_1);
+            pos += charCount;
+            return string;
+        }
+        return new String(readChars(charCount), 0, charCount);
+    }
+
+    @Override
+    protected char[] readChars(int charCount) throws IOException {
+        final int available = count - pos;
+        if (charCount > available
+            || (charCount > available / Utf8Codec.MAX_BYTES_PER_CHAR && Utf8Codec.asciiPrefix(buffer, pos, charCount) != charCount)) {
+            // the encoded string may extend past the buffered bytes, let the generic decoder read it through the buffer
+            return super.readChars(charCount);
+        }
+        final char[] chars = charBuffer(charCount);
+        pos = Utf8Codec.decode(buffer, pos, count, chars, charCount);
+        return chars;
+    }
+
     @Override
     public void reset() throws IOException {
-        is.reset();
+        if (buffer == null) {
+            is.reset();
+            return;
+        }
+        if (markPos < 0) {
+            throw new IOException("Resetting to invalid mark");
+        }
+        pos = markPos;
     }
 
     @Override
     public boolean markSupported() {
-        return is.markSupported();
+        return buffer != null || is.markSupported();
     }
 
     @Override
     public void mark(int readlimit) {
-        is.mark(readlimit);
+        if (buffer == null) {
+            is.mark(readlimit);
+            return;
+        }
+        markLimit = readlimit;
+        markPos = pos;
     }
 
     @Override
@@ -77,27 +275,84 @@ public class InputStreamStreamInput extends StreamInput {
 
     @Override
     public int available() throws IOException {
-        return is.available();
+        if (buffer == null) {
+            return is.available();
+        }
+        final int buffered = count - pos;
+        final int available = is.available();
+        return buffered > Integer.MAX_VALUE - available ? Integer.MAX_VALUE : buffered + available;
     }
 
     @Override
     public int read() throws IOException {
-        return is.read();
+        if (buffer == null) {
+            return is.read();
+        }
+        if (pos >= count) {
+            fill();
+            if (pos >= count) {
+                return -1;
+            }
+        }
+        return buffer[pos++] & 0xFF;
     }
 
     @Override
     public int read(byte[] b) throws IOException {
-        return is.read(b);
+        return read(b, 0, b.length);
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        return is.read(b, off, len);
+        if (buffer == null) {
+            return is.read(b, off, len);
+        }
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int available = count - pos;
+        if (available <= 0) {
+            // large reads bypass the buffer unless we need to keep the bytes for a mark
+            if (len >= buffer.length && markPos < 0) {
+                return is.read(b, off, len);
+            }
+            fill();
+            available = count - pos;
+            if (available <= 0) {
+                return -1;
+            }
+        }
+        final int toCopy = Math.min(available, len);
+        System.arraycopy(buffer, pos, b, off, toCopy);
+        pos += toCopy;
+        return toCopy;
     }
 
     @Override
     public long skip(long n) throws IOException {
-        return is.skip(n);
+        if (buffer == null) {
+            return is.skip(n);
+        }
+        if (n <= 0) {
+            return 0;
+        }
+        long available = count - pos;
+        if (available <= 0) {
+            if (markPos < 0) {
+                return is.skip(n);
+            }
+            fill();
+            available = count - pos;
+            if (available <= 0) {
+                return 0;
+            }
+        }
+        final long skipped = Math.min(available, n);
+        pos += skipped;
+        return skipped;
     }
 
     @Override
@@ -106,4 +361,32 @@ public class InputStreamStreamInput extends StreamInput {
             throw new EOFException("tried to read: " + length + " bytes but this stream is limited to: " + sizeLimit);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads more bytes from the underlying stream into the buffer once all buffered bytes have been consumed. Bytes after
+     * the mark position are preserved as long as they are within the mark limit.
+     */
+    private void fill() throws IOException {
+        if (markPos < 0) {
+            pos = 0;
+        } else if (pos >= buffer.length) {
+            if (markPos > 0) {
+                final int keep = pos - markPos;
+                System.arraycopy(buffer, markPos, buffer, 0, keep);
+                pos = keep;
+                markPos = 0;
+            } else if (buffer.length >= markLimit) {
+                // read past the mark limit, drop the mark
+                markPos = -1;
+                pos = 0;
+            } else {
+                buffer = Arrays.copyOf(buffer, (int) Math.min((long) buffer.length << 1, markLimit));
+            }
+        }
+        count = pos;
+        final int read = is.read(buffer, pos, buffer.length - pos);
+        if (read > 0) {
+            count = pos + read;
+        }
+    }
+}
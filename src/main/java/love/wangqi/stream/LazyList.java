@@ -0,0 +1,70 @@
+package love.wangqi.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The read-only list a {@link LazyMap} returns for the lists it holds. The offsets of the elements are indexed on first
+ * access and an element is decoded the first time it is asked for.
+ */
+final class LazyList extends AbstractList<Object> implements RandomAccess {
+
+    private final StreamInput in;
+    private final long start;
+
+    private long[] offsets;
+    private Object[] values;
+
+    LazyList(StreamInput in, long start) {
+        this.in = in;
+        this.start = start;
+    }
+
+    private void ensureIndexed() {
+        if (offsets != null) {
+            return;
+        }
+        try {
+            in.seek(start);
+            in.readByte();
+            final int size = in.readArraySize();
+            final long[] offsets = new long[size];
+            for (int i = 0; i < size; i++) {
+                offsets[i] = in.position();
+                in.skipGenericValue();
+            }
+            this.values = new Object[size];
+            Arrays.fill(this.values, LazyMap.NOT_DECODED);
+            this.offsets = offsets;
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to index lazy list", e);
+        }
+    }
+
+    @Override
+    public Object get(int index) {
+        ensureIndexed();
+        if (index < 0 || index >= offsets.length) {
+            throw new IndexOutOfBoundsException("index [" + index + "] out of bounds for length " + offsets.length);
+        }
+        Object value = values[index];
+        if (value == LazyMap.NOT_DECODED) {
+            try {
+                value = LazyMap.readValue(in, offsets[index]);
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to read element [" + index + "]", e);
+            }
+            values[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        ensureIndexed();
+        return offsets.length;
+    }
+}
@@ -0,0 +1,194 @@
+package love.wangqi.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The read-only map returned by {@link StreamInput#readLazyMap()}. It reads the generic value that starts at {@code start}
+ * in a stream {@linkplain StreamInput#isBackedByMemory() backed by memory}: the keys and the offsets of the values are
+ * indexed on first access, and a value is decoded the first time it is asked for. Nested maps and lists share the stream.
+ */
+final class LazyMap extends AbstractMap<String, Object> {
+
+    /**
+     * Marks the values that have not been decoded yet, {@code null} being a valid value.
+     */
+    static final Object NOT_DECODED = new Object();
+
+    private final StreamInput in;
+    private final long start;
+
+    private String[] keys;
+    private long[] valueOffsets;
+    private Object[] values;
+    private Map<String, Integer> index;
+
+    LazyMap(StreamInput in, long start) {
+        this.in = in;
+        this.start = start;
+    }
+
+    static boolean isMap(byte type) {
+        return type == 9 || type == 10 || type == 25 || type == 26;
+    }
+
+    /**
+     * Reads the generic value at the given position of {@code in}, maps and lists being read as views.
+     */
+    static Object readValue(StreamInput in, long position) throws IOException {
+        in.seek(position);
+        final byte type = in.readByte();
+        if (isMap(type)) {
+            return new LazyMap(in, position);
+        } else if (type == 7) {
+            return new LazyList(in, position);
+        }
+        in.seek(position);
+        return in.readGenericValue();
+    }
+
+    private void ensureIndexed() {
+        if (keys != null) {
+            return;
+        }
+        try {
+            in.seek(start);
+            final boolean sharedKeys = in.readByte() >= 25;
+            final int size = in.readArraySize();
+            final String[] keys = new String[size];
+            final long[] valueOffsets = new long[size];
+            final Map<String, Integer> index = new HashMap<>(Math.max(4, (int) (size / 0.75f) + 1));
+            for (int i = 0; i < size; i++) {
+                keys[i] = sharedKeys ? in.readSharedString() : in.readCachedString();
+                valueOffsets[i] = in.position();
+                index.put(keys[i], i);
+                in.skipGenericValue();
+            }
+            this.values = new Object[size];
+            Arrays.fill(this.values, NOT_DECODED);
+            this.valueOffsets = valueOffsets;
+            this.index = index;
+            this.keys = keys;
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to index lazy map", e);
+        }
+    }
+
+    private Object value(int i) {
+        Object value = values[i];
+        if (value == NOT_DECODED) {
+            try {
+                value = readValue(in, valueOffsets[i]);
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to read the value of [" + keys[i] + "]", e);
+            }
+            values[i] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public int size() {
+        ensureIndexed();
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        ensureIndexed();
+        return index.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        ensureIndexed();
+        final Integer i = index.get(key);
+        return i == null ? null : value(i);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                ensureIndexed();
+                return new Iterator<Entry<String, Object>>() {
+                    int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (hasNext() == false) {
+                            throw new NoSuchElementException();
+                        }
+                        return new LazyEntry(next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * An entry whose value is only decoded when {@link #getValue()} is called, so that iterating over the keys of the map
+     * does not decode the values.
+     */
+    private final class LazyEntry implements Entry<String, Object> {
+        private final int i;
+
+        LazyEntry(int i) {
+            this.i = i;
+        }
+
+        @Override
+        public String getKey() {
+            return keys[i];
+        }
+
+        @Override
+        public Object getValue() {
+            return value(i);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> other = (Entry<?, ?>) o;
+            return keys[i].equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return keys[i].hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return keys[i] + "=" + getValue();
+        }
+    }
+}
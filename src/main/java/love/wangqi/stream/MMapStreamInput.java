@@ -0,0 +1,447 @@
+package love.wangqi.stream;
+
+import love.wangqi.common.bytes.ByteBufferReference;
+import love.wangqi.common.bytes.BytesReference;
+import love.wangqi.common.bytes.CompositeBytesReference;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link StreamInput} that reads a file through {@link FileChannel#map}. A single mapping is limited to 2GB, so the file
+ * is mapped as a sequence of equally sized regions and positions are tracked as {@code long}s. Primitives that are fully
+ * contained in one region are read with the region's absolute big-endian accessors, only values straddling two regions
+ * fall back to reading byte by byte.
+ * <p>
+ * The regions are never modified, so {@link #slice(long, long)} can hand out independent streams over a sub-range of the
+ * file that share the same mappings.
+ */
+public class MMapStreamInput extends StreamInput {
+
+    /**
+     * The default size of a mapped region, 1GB.
+     */
+    public static final int DEFAULT_REGION_SIZE = 1 << 30;
+
+    private final ByteBuffer[] regions;
+    private final int regionShift;
+    private final long regionMask;
+    private final long offset;
+    private final long length;
+    private long pos;
+    private long mark;
+
+    private MMapStreamInput(ByteBuffer[] regions, int regionShift, long offset, long length) {
+        this.regions = regions;
+        this.regionShift = regionShift;
+        this.regionMask = (1L << regionShift) - 1;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Maps the whole file at the given path with regions of {@link #DEFAULT_REGION_SIZE} bytes.
+     */
+    public static MMapStreamInput open(Path path) throws IOException {
+        return open(path, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Maps the whole file at the given path.
+     * @param regionSize the size of every mapped region, must be a power of two
+     */
+    public static MMapStreamInput open(Path path, int regionSize) throws IOException {
+        if (regionSize <= 0 || Integer.bitCount(regionSize) != 1) {
+            throw new IllegalArgumentException("region size must be a power of two but was: " + regionSize);
+        }
+        final int regionShift = Integer.numberOfTrailingZeros(regionSize);
+        // the mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            final long numRegions = (size + regionSize - 1) >>> regionShift;
+            if (numRegions > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("file [" + path + "] is too large to be mapped with regions of " + regionSize + " bytes");
+            }
+            final ByteBuffer[] regions = new ByteBuffer[(int) numRegions];
+            for (int i = 0; i < regions.length; i++) {
+                final long regionOffset = ((long) i) << regionShift;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, regionOffset, Math.min(regionSize, size - regionOffset));
+            }
+            return new MMapStreamInput(regions, regionShift, 0, size);
+        }
+    }
+
+    /**
+     * Returns the number of bytes that can be read from this stream in total.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Returns the number of bytes read from this stream so far.
+     */
+    @Override
+    public long position() {
+        return pos;
+    }
+
+    /**
+     * Moves this stream to the given position.
+     */
+    @Override
+    public void seek(long position) {
+        if (position < 0 || position > length) {
+            throw new IndexOutOfBoundsException("position [" + position + "] out of bounds for length " + length);
+        }
+        pos = position;
+    }
+
+    /**
+     * Returns a new, independent stream over {@code length} bytes starting at {@code offset} of this stream. The bytes are
+     * not copied, both streams read from the same mapped regions.
+     */
+    public MMapStreamInput slice(long offset, long length) {
+        if (offset < 0 || length < 0 || offset > this.length - length) {
+            throw new IndexOutOfBoundsException("slice [" + offset + ", " + length + "] out of bounds for length " + this.length);
+        }
+        return new MMapStreamInput(regions, regionShift, this.offset + offset, length);
+    }
+
+    @Override
+    public boolean isBackedByMemory() {
+        return true;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        if (pos >= length) {
+            throw new EOFException();
+        }
+        final long address = offset + pos++;
+        return regions[(int) (address >>> regionShift)].get((int) (address & regionMask));
+    }
+
+    @Override
+    public void readBytes(byte[] b, int offset, int len) throws IOException {
+        if (len < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        require(len);
+        while (len > 0) {
+            final long address = this.offset + pos;
+            final ByteBuffer region = regions[(int) (address >>> regionShift)].duplicate();
+            region.position((int) (address & regionMask));
+            final int toCopy = Math.min(len, region.remaining());
+            region.get(b, offset, toCopy);
+            offset += toCopy;
+            len -= toCopy;
+            pos += toCopy;
+        }
+    }
+
+    /**
+     * Returns a view of the next {@code length} bytes of the mapped file, without copying them.
+     */
+    @Override
+    public BytesReference readBytesReference(int length) throws IOException {
+        if (length < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        require(length);
+        final List<BytesReference> references = new ArrayList<>(1);
+        while (length > 0) {
+            final long address = offset + pos;
+            final ByteBuffer region = regions[(int) (address >>> regionShift)].duplicate();
+            region.position((int) (address & regionMask));
+            final int toSlice = Math.min(length, region.remaining());
+            region.limit(region.position() + toSlice);
+            references.add(new ByteBufferReference(region));
+            length -= toSlice;
+            pos += toSlice;
+        }
+        return CompositeBytesReference.of(references);
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        final ByteBuffer region = regionFor(Short.BYTES);
+        if (region == null) {
+            return super.readShort();
+        }
+        final short s = region.getShort((int) ((offset + pos) & regionMask));
+        pos += Short.BYTES;
+        return s;
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        final ByteBuffer region = regionFor(Integer.BYTES);
+        if (region == null) {
+            return super.readInt();
+        }
+        final int i = region.getInt((int) ((offset + pos) & regionMask));
+        pos += Integer.BYTES;
+        return i;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        final ByteBuffer region = regionFor(Long.BYTES);
+        if (region == null) {
+            return super.readLong();
+        }
+        final long l = region.getLong((int) ((offset + pos) & regionMask));
+        pos += Long.BYTES;
+        return l;
+    }
+
+    @Override
+    public int readVInt() throws IOException {
+        final ByteBuffer region = regionFor(5);
+        if (region == null) {
+            return super.readVInt();
+        }
+        int index = (int) ((offset + pos) & regionMask);
+        final int start = index;
+        byte b = region.get(index++);
+        int i = b & 0x7F;
+        if ((b & 0x80) != 0) {
+            b = region.get(index++);
+            i |= (b & 0x7F) << 7;
+            if ((b & 0x80) != 0) {
+                b = region.get(index++);
+                i |= (b & 0x7F) << 14;
+                if ((b & 0x80) != 0) {
+                    b = region.get(index++);
+                    i |= (b & 0x7F) << 21;
+                    if ((b & 0x80) != 0) {
+                        b = region.get(index++);
+                        if ((b & 0x80) != 0) {
+                            throw new IOException("Invalid vInt ((" + Integer.toHexString(b) + " & 0x7f) << 28) | " + Integer.toHexString(i));
+                        }
+                        i |= (b & 0x7F) << 28;
+                    }
+                }
+            }
+        }
+        pos += index - start;
+        return i;
+    }
+
+    @Override
+    public long readVLong() throws IOException {
+        final ByteBuffer region = regionFor(10);
+        if (region == null) {
+            return super.readVLong();
+        }
+        int index = (int) ((offset + pos) & regionMask);
+        final int start = index;
+        long i = 0;
+        for (int shift = 0; shift < 63; shift += 7) {
+            final byte b = region.get(index++);
+            i |= (b & 0x7FL) << shift;
+            if ((b & 0x80) == 0) {
+                pos += index - start;
+                return i;
+            }
+        }
+        final byte b = region.get(index++);
+        if (b != 0 && b != 1) {
+            throw new IOException("Invalid vlong (" + Integer.toHexString(b) + " << 63) | " + Long.toHexString(i));
+        }
+        pos += index - start;
+        return i | (((long) b) << 63);
+    }
+
+    @Override
+    protected String readString(int charCount) throws IOException {
+        // the regions have no array to build an ASCII string from, decoding them into the char buffer is a single pass
+        return new String(readChars(charCount), 0, charCount);
+    }
+
+    @Override
+    protected char[] readChars(int charCount) throws IOException {
+        ByteBuffer region = regionFor(charCount);
+        if (region == null) {
+            return super.readChars(charCount);
+        }
+        final int index = (int) ((offset + pos) & regionMask);
+        if (Utf8Codec.asciiPrefix(region, index, charCount) != charCount) {
+            region = regionFor((long) Utf8Codec.MAX_BYTES_PER_CHAR * charCount);
+            if (region == null) {
+                // the encoded string may straddle two regions
+                return super.readChars(charCount);
+            }
+        }
+        final char[] chars = charBuffer(charCount);
+        pos += Utf8Codec.decode(region, index, region.limit(), chars, charCount) - index;
+        return chars;
+    }
+
+    @Override
+    public int[] readIntArray() throws IOException {
+        final long start = pos;
+        final int length = readArraySize();
+        final ByteBuffer region = regionFor((long) length * Integer.BYTES);
+        if (region == null) {
+            pos = start;
+            return super.readIntArray();
+        }
+        final int[] values = new int[length];
+        positioned(region).asIntBuffer().get(values);
+        pos += (long) length * Integer.BYTES;
+        return values;
+    }
+
+    @Override
+    public long[] readLongArray() throws IOException {
+        final long start = pos;
+        final int length = readArraySize();
+        final ByteBuffer region = regionFor((long) length * Long.BYTES);
+        if (region == null) {
+            pos = start;
+            return super.readLongArray();
+        }
+        final long[] values = new long[length];
+        positioned(region).asLongBuffer().get(values);
+        pos += (long) length * Long.BYTES;
+        return values;
+    }
+
+    @Override
+    public float[] readFloatArray() throws IOException {
+        final long start = pos;
+        final int length = readArraySize();
+        final ByteBuffer region = regionFor((long) length * Float.BYTES);
+        if (region == null) {
+            pos = start;
+            return super.readFloatArray();
+        }
+        final float[] values = new float[length];
+        positioned(region).asFloatBuffer().get(values);
+        pos += (long) length * Float.BYTES;
+        return values;
+    }
+
+    @Override
+    public double[] readDoubleArray() throws IOException {
+        final long start = pos;
+        final int length = readArraySize();
+        final ByteBuffer region = regionFor((long) length * Double.BYTES);
+        if (region == null) {
+            pos = start;
+            return super.readDoubleArray();
+        }
+        final double[] values = new double[length];
+        positioned(region).asDoubleBuffer().get(values);
+        pos += (long) length * Double.BYTES;
+        return values;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos >= length) {
+            return -1;
+        }
+        return readByte() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= length) {
+            return -1;
+        }
+        len = (int) Math.min(len, length - pos);
+        readBytes(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final long skipped = Math.min(n, length - pos);
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        mark = pos;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        pos = mark;
+    }
+
+    /**
+     * Does nothing, the mapped regions are released once this stream and all of its slices are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        // nothing to do
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(length - pos, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected void ensureCanReadBytes(int length) throws EOFException {
+        if (length > this.length - pos) {
+            throw new EOFException("tried to read: " + length + " bytes but only " + (this.length - pos) + " remaining");
+        }
+    }
+
+    private void require(long length) throws EOFException {
+        if (length > this.length - pos) {
+            throw new EOFException("tried to read: " + length + " bytes but only " + (this.length - pos) + " remaining");
+        }
+    }
+
+    /**
+     * Returns the region holding the next {@code size} bytes, or {@code null} if they straddle two regions or go past the
+     * end of this stream.
+     */
+    private ByteBuffer regionFor(long size) {
+        if (size > length - pos) {
+            return null;
+        }
+        final long address = offset + pos;
+        final int index = (int) (address >>> regionShift);
+        if (index >= regions.length || (address & regionMask) + size > (1L << regionShift)) {
+            return null;
+        }
+        return regions[index];
+    }
+
+    /**
+     * Returns a view of the given region starting at the current position.
+     */
+    private ByteBuffer positioned(ByteBuffer region) {
+        final ByteBuffer view = region.duplicate();
+        view.position((int) ((offset + pos) & regionMask));
+        return view;
+    }
+}
@@ -0,0 +1,14 @@
+package love.wangqi.stream;
+
+/**
+ * A {@link Writeable} object identified by its name. To be used for arbitrary serializable objects (e.g. queries); when
+ * reading them, a {@link NamedWriteableRegistry} can be used to retrieve their associated parser from the name and the
+ * category class the object belongs to.
+ */
+public interface NamedWriteable extends Writeable {
+
+    /**
+     * Returns the name of the writeable object
+     */
+    String getWriteableName();
+}
@@ -0,0 +1,113 @@
+package love.wangqi.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A registry for {@link Writeable.Reader} readers of {@link NamedWriteable}.
+ * <p>
+ * The registration is keyed by the combination of the category class of {@link NamedWriteable}, and a name unique to that
+ * category. Every entry is also assigned a numeric id, its position in the list of entries, which is what
+ * {@link StreamOutput#writeNamedWriteable(NamedWriteable)} writes on the wire instead of the name. Both sides must therefore
+ * build their registry from the same entries in the same order; new entries should be appended at the end.
+ */
+public class NamedWriteableRegistry {
+
+    /**
+     * An entry in the registry, made up of a category class and name, and a reader for that category class.
+     */
+    public static class Entry {
+
+        /**
+         * The superclass of a {@link NamedWriteable} which will be read by {@link #reader}.
+         */
+        public final Class<?> categoryClass;
+
+        /**
+         * A name for the writeable which is unique to the {@link #categoryClass}.
+         */
+        public final String name;
+
+        /**
+         * A reader capability of reading
+         */
+        public final Writeable.Reader<?> reader;
+
+        /**
+         * Creates a new entry which can be stored by the registry.
+         */
+        public <T extends NamedWriteable> Entry(Class<T> categoryClass, String name, Writeable.Reader<? extends T> reader) {
+            this.categoryClass = Objects.requireNonNull(categoryClass);
+            this.name = Objects.requireNonNull(name);
+            this.reader = Objects.requireNonNull(reader);
+        }
+    }
+
+    private final Entry[] entries;
+
+    /**
+     * The ids of the entries with the given name, usually a single one unless several categories use the same name.
+     */
+    private final Map<String, int[]> idsByName;
+
+    /**
+     * Constructs a new registry from the given entries.
+     *
+     * @throws IllegalArgumentException if a name is registered twice for the same category
+     */
+    public NamedWriteableRegistry(List<Entry> entries) {
+        this.entries = entries.toArray(new Entry[0]);
+        final Map<Class<?>, Set<String>> namesByCategory = new HashMap<>();
+        final Map<String, List<Integer>> ids = new HashMap<>();
+        for (int id = 0; id < this.entries.length; id++) {
+            final Entry entry = this.entries[id];
+            if (!namesByCategory.computeIfAbsent(entry.categoryClass, c -> new HashSet<>()).add(entry.name)) {
+                throw new IllegalArgumentException("NamedWriteable [" + entry.categoryClass.getName() + "][" + entry.name + "]"
+                    + " is already registered");
+            }
+            ids.computeIfAbsent(entry.name, n -> new ArrayList<>(1)).add(id);
+        }
+        final Map<String, int[]> idsByName = new HashMap<>(ids.size());
+        for (Map.Entry<String, List<Integer>> entry : ids.entrySet()) {
+            idsByName.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+        this.idsByName = Collections.unmodifiableMap(idsByName);
+    }
+
+    /**
+     * Returns the id the given writeable is written with, the id of the entry with its name whose category it belongs to.
+     *
+     * @throws IllegalArgumentException if the writeable is not registered
+     */
+    public int getId(NamedWriteable writeable) {
+        final int[] ids = idsByName.get(writeable.getWriteableName());
+        if (ids != null) {
+            for (int id : ids) {
+                if (entries[id].categoryClass.isInstance(writeable)) {
+                    return id;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown NamedWriteable [" + writeable.getWriteableName() + "] of class ["
+            + writeable.getClass().getName() + "]");
+    }
+
+    /**
+     * Returns the entry with the given id.
+     *
+     * @throws IllegalArgumentException if there is no such entry
+     */
+    public Entry getEntry(int id) {
+        if (id < 0 || id >= entries.length) {
+            throw new IllegalArgumentException("Unknown NamedWriteable id [" + id + "], only [" + entries.length
+                + "] are registered");
+        }
+        return entries[id];
+    }
+}
@@ -1,5 +1,7 @@
 package love.wangqi.stream;
 
+import love.wangqi.common.ByteUtils;
+
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -11,29 +13,135 @@ import java.io.OutputStream;
  */
 public class OutputStreamStreamOutput extends StreamOutput {
 
+    /**
+     * The smallest buffer that can hold any encoded primitive, i.e. a ten byte vlong.
+     */
+    static final int MIN_BUFFER_SIZE = 10;
+
     private final OutputStream out;
 
+    /**
+     * Write buffer, {@code null} if this stream is not buffered. Bytes in {@code [0, count)} have not been handed to the
+     * underlying stream yet.
+     */
+    private final byte[] buffer;
+    private int count;
+
     public OutputStreamStreamOutput(OutputStream out) {
+        this(out, 0);
+    }
+
+    /**
+     * Creates a new OutputStreamStreamOutput that collects writes in an internal buffer and hands them to the given output
+     * stream in chunks of up to {@code bufferSize} bytes. Buffered bytes are written out on {@link #flush()} and
+     * {@link #close()}.
+     * @param out the output stream to wrap
+     * @param bufferSize the size of the internal write buffer, or {@code 0} to write to the output stream byte by byte
+     */
+    public OutputStreamStreamOutput(OutputStream out, int bufferSize) {
+        if (bufferSize != 0 && bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("buffer size must be 0 or at least " + MIN_BUFFER_SIZE + " but was: " + bufferSize);
+        }
         this.out = out;
+        this.buffer = bufferSize == 0 ? null : new byte[bufferSize];
     }
 
     @Override
     public void writeByte(byte b) throws IOException {
-        out.write(b);
+        if (buffer == null) {
+            out.write(b);
+            return;
+        }
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = b;
     }
 
     @Override
     public void writeBytes(byte[] b, int offset, int length) throws IOException {
-        out.write(b, offset, length);
+        if (buffer == null) {
+            out.write(b, offset, length);
+            return;
+        }
+        if (length >= buffer.length) {
+            // no point in copying large chunks through the buffer
+            flushBuffer();
+            out.write(b, offset, length);
+            return;
+        }
+        if (length > buffer.length - count) {
+            flushBuffer();
+        }
+        System.arraycopy(b, offset, buffer, count, length);
+        count += length;
+    }
+
+    @Override
+    public void writeInt(int i) throws IOException {
+        if (buffer == null) {
+            super.writeInt(i);
+            return;
+        }
+        ensureRoom(Integer.BYTES);
+        ByteUtils.writeIntBE(i, buffer, count);
+        count += Integer.BYTES;
+    }
+
+    @Override
+    public void writeLong(long i) throws IOException {
+        if (buffer == null) {
+            super.writeLong(i);
+            return;
+        }
+        ensureRoom(Long.BYTES);
+        ByteUtils.writeLongBE(i, buffer, count);
+        count += Long.BYTES;
+    }
+
+    @Override
+    public void writeVInt(int i) throws IOException {
+        if (buffer == null) {
+            super.writeVInt(i);
+            return;
+        }
+        ensureRoom(5);
+        count = ByteUtils.writeVInt(i, buffer, count);
+    }
+
+    @Override
+    void writeVLongNoCheck(long i) throws IOException {
+        if (buffer == null) {
+            super.writeVLongNoCheck(i);
+            return;
+        }
+        ensureRoom(10);
+        count = ByteUtils.writeVLong(i, buffer, count);
+    }
+
+    @Override
+    public void writeString(CharSequence str) throws IOException {
+        final int charCount = str.length();
+        // the vint takes at most 5 bytes, every char at most 3
+        final long maxLength = Utf8Codec.MAX_BYTES_PER_CHAR * (long) charCount + 5;
+        if (buffer == null || maxLength > buffer.length) {
+            super.writeString(str);
+            return;
+        }
+        ensureRoom((int) maxLength);
+        count = ByteUtils.writeVInt(charCount, buffer, count);
+        count = Utf8Codec.encode(str, 0, charCount, buffer, count);
     }
 
     @Override
     public void flush() throws IOException {
+        flushBuffer();
         out.flush();
     }
 
     @Override
     public void close() throws IOException {
+        flushBuffer();
         out.close();
     }
 
@@ -41,4 +149,17 @@ public class OutputStreamStreamOutput extends StreamOutput {
     public void reset() throws IOException {
         throw new UnsupportedOperationException();
     }
+
+    private void ensureRoom(int length) throws IOException {
+        if (length > buffer.length - count) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
 }
@@ -2,12 +2,21 @@ package love.wangqi.stream;
 
 import love.wangqi.common.ArrayUtil;
 import love.wangqi.common.BitUtil;
+import love.wangqi.common.ByteUtils;
+import love.wangqi.common.DoubleList;
+import love.wangqi.common.FloatList;
+import love.wangqi.common.HalfFloat;
+import love.wangqi.common.IntList;
+import love.wangqi.common.LongList;
 import love.wangqi.common.Nullable;
+import love.wangqi.common.RamUsageEstimator;
+import love.wangqi.common.bytes.BytesArray;
+import love.wangqi.common.bytes.BytesReference;
 
-import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -43,6 +52,64 @@ public abstract class StreamInput extends InputStream {
         readBytes(b, 0, b.length);
     }
 
+    /**
+     * Returns the number of bytes read from this stream so far. Only supported by streams that are
+     * {@linkplain #isBackedByMemory() backed by memory}.
+     */
+    public long position() throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Moves this stream to the given position. Only supported by streams that are
+     * {@linkplain #isBackedByMemory() backed by memory}.
+     */
+    public void seek(long position) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns whether all the bytes of this stream are held in memory, in which case {@link #position()} and
+     * {@link #seek(long)} are supported and {@link #readBytesReference(int)} returns views rather than copies.
+     */
+    public boolean isBackedByMemory() {
+        return false;
+    }
+
+    /**
+     * Reads a bytes reference from this stream, which was written with {@link StreamOutput#writeBytesReference}.
+     * Streams that are backed by memory return a view of their own bytes rather than a copy.
+     */
+    public BytesReference readBytesReference() throws IOException {
+        int length = readArraySize();
+        return readBytesReference(length);
+    }
+
+    /**
+     * Reads an optional bytes reference from this stream. It might hold an actual reference to the underlying bytes of
+     * the stream. Use this only if you must differentiate null from empty.
+     */
+    @Nullable
+    public BytesReference readOptionalBytesReference() throws IOException {
+        if (readBoolean()) {
+            return readBytesReference();
+        }
+        return null;
+    }
+
+    /**
+     * Reads a bytes reference of the given length from this stream. The default implementation copies the bytes,
+     * implementations that are backed by memory override this to return a view of their own bytes.
+     */
+    public BytesReference readBytesReference(int length) throws IOException {
+        if (length == 0) {
+            return BytesArray.EMPTY;
+        }
+        byte[] bytes = new byte[length];
+        readBytes(bytes, 0, length);
+        return new BytesArray(bytes, 0, length);
+    }
+
     public short readShort() throws IOException {
         return (short) (((readByte() & 0xFF) << 8) | (readByte() & 0xFF));
     }
@@ -165,17 +232,8 @@ public abstract class StreamInput extends InputStream {
     }
 
     public long readZLong() throws IOException {
-        long accumulator = 0L;
-        int i = 0;
-        long currentByte;
-        while (((currentByte = readByte()) & 0x80L) != 0) {
-            accumulator |= (currentByte & 0x7F) << i;
-            i += 7;
-            if (i > 63) {
-                throw new IOException("variable-length stream is too long");
-            }
-        }
-        return BitUtil.zigZagDecode(accumulator | (currentByte << i));
+        // a zig-zag encoded vlong, see StreamOutput#writeZLong
+        return BitUtil.zigZagDecode(readVLong());
     }
 
     @Nullable
@@ -213,33 +271,164 @@ public abstract class StreamInput extends InputStream {
 
     public String readString() throws IOException {
         final int charCount = readArraySize();
+        return charCount == 0 ? "" : readString(charCount);
+    }
+
+    /**
+     * Decodes a string of {@code charCount} characters whose length prefix has already been read. A string that fits in the
+     * scratch buffer is read in one go and built straight from the bytes if it is all ASCII. Implementations that have the
+     * encoded bytes at hand override this to do the same without copying them out first.
+     */
+    protected String readString(int charCount) throws IOException {
+        final byte[] buffer = scratchBuffer(charCount);
+        final int chunk = Math.min(buffer.length, charCount);
+        readBytes(buffer, 0, chunk);
+        if (chunk == charCount && Utf8Codec.asciiPrefix(buffer, 0, chunk) == chunk) {
+            return new String(buffer, 0, chunk, StandardCharsets.ISO_8859_1);
+        }
+        return new String(decodeChars(buffer, chunk, charCount), 0, charCount);
+    }
+
+    /**
+     * Decodes {@code charCount} characters whose length prefix has already been read into {@link #charBuffer(int)}, and
+     * returns that buffer. Implementations that have the encoded bytes at hand override this to decode them without
+     * copying them out first.
+     */
+    protected char[] readChars(int charCount) throws IOException {
+        final byte[] buffer = scratchBuffer(charCount);
+        final int chunk = Math.min(buffer.length, charCount);
+        readBytes(buffer, 0, chunk);
+        return decodeChars(buffer, chunk, charCount);
+    }
+
+    /**
+     * Decodes {@code charCount} characters into {@link #charBuffer(int)}, the first {@code chunk} bytes of which have already
+     * been read into {@code buffer}.
+     */
+    private char[] decodeChars(byte[] buffer, int chunk, int charCount) throws IOException {
+        final char[] chars = charBuffer(charCount);
+        int i = 0;
+        while (true) {
+            int offset = 0;
+            while (offset < chunk) {
+                final int c = buffer[offset++] & 0xff;
+                switch (c >> 4) {
+                    case 0:
+                    case 1:
+                    case 2:
+                    case 3:
+                    case 4:
+                    case 5:
+                    case 6:
+                    case 7:
+                        chars[i++] = (char) c;
+                        break;
+                    case 12:
+                    case 13: {
+                        final int b2 = offset < chunk ? buffer[offset++] : readByte();
+                        chars[i++] = ((char) ((c & 0x1F) << 6 | b2 & 0x3F));
+                        break;
+                    }
+                    case 14: {
+                        final int b2 = offset < chunk ? buffer[offset++] : readByte();
+                        final int b3 = offset < chunk ? buffer[offset++] : readByte();
+                        chars[i++] = ((char) ((c & 0x0F) << 12 | (b2 & 0x3F) << 6 | (b3 & 0x3F) << 0));
+                        break;
+                    }
+                    default:
+                        throw Utf8Codec.invalid(c);
+                }
+            }
+            if (i == charCount) {
+                return chars;
+            }
+            // every remaining char takes at least one byte, so this never reads past the end of the string
+            chunk = Math.min(buffer.length, charCount - i);
+            readBytes(buffer, 0, chunk);
+        }
+    }
+
+    @Nullable
+    private StringCache stringCache;
+
+    /**
+     * Sets the cache {@link #readCachedString()} deduplicates strings through, for instance the keys of the maps read by
+     * {@link #readGenericValue()}. A single cache can be shared by all the streams a batch of documents is read from.
+     */
+    public void setStringCache(@Nullable StringCache stringCache) {
+        this.stringCache = stringCache;
+    }
+
+    @Nullable
+    public StringCache getStringCache() {
+        return stringCache;
+    }
+
+    /**
+     * Reads a string like {@link #readString()}, but if a {@linkplain #setStringCache(StringCache) string cache} is set the
+     * chars are decoded into a scratch buffer and looked up in the cache first, so that a string read before is returned
+     * again instead of allocating a new one. Use this for low cardinality strings such as map keys.
+     */
+    public String readCachedString() throws IOException {
+        final int charCount = readArraySize();
+        if (charCount == 0) {
+            return "";
+        }
+        if (stringCache == null) {
+            return readString(charCount);
+        }
+        return stringCache.get(readChars(charCount), 0, charCount);
+    }
+
+    /**
+     * The strings read with {@link #readSharedString()} so far, indexed by id. Only the first {@link #stringDictionarySize}
+     * entries are set, and they never change once set.
+     */
+    private String[] stringDictionary = new String[0];
+
+    private int stringDictionarySize;
+
+    /**
+     * Whether {@link #stringDictionary} is shared with the stream a {@link #readLazyMap()} view was read from, in which case
+     * the strings that are shared for the first time are already in it.
+     */
+    private boolean stringDictionaryFrozen;
 
-        final char[] buffer = new char[ArrayUtil.oversize(charCount, Character.BYTES)];
-        for (int i = 0; i < charCount; i++) {
-            final int c = readByte() & 0xff;
-            switch (c >> 4) {
-                case 0:
-                case 1:
-                case 2:
-                case 3:
-                case 4:
-                case 5:
-                case 6:
-                case 7:
-                    buffer[i] = (char) c;
-                    break;
-                case 12:
-                case 13:
-                    buffer[i] = ((char) ((c & 0x1F) << 6 | readByte() & 0x3F));
-                    break;
-                case 14:
-                    buffer[i] = ((char) ((c & 0x0F) << 12 | (readByte() & 0x3F) << 6 | (readByte() & 0x3F) << 0));
-                    break;
-                default:
-                    throw new IOException("Invalid string; unexpected character: " + c + " hex: " + Integer.toHexString(c));
+    /**
+     * Reads a string written with {@link StreamOutput#writeSharedString(String)}, either in full or as a reference to a
+     * string read before from this stream.
+     */
+    public String readSharedString() throws IOException {
+        final int id = readVInt();
+        if (id == 0) {
+            final String string = readCachedString();
+            if (stringDictionaryFrozen == false && stringDictionarySize < StreamOutput.MAX_STRING_DICTIONARY_SIZE) {
+                if (stringDictionarySize == stringDictionary.length) {
+                    stringDictionary = Arrays.copyOf(stringDictionary,
+                        ArrayUtil.oversize(stringDictionarySize + 1, RamUsageEstimator.NUM_BYTES_OBJECT_REF));
+                }
+                stringDictionary[stringDictionarySize++] = string;
             }
+            return string;
+        }
+        if (id < 0 || id > stringDictionarySize) {
+            throw new IOException("Can't read unknown shared string [" + (id - 1) + "], only [" + stringDictionarySize
+                + "] strings were read");
+        }
+        return stringDictionary[id - 1];
+    }
+
+    private char[] charBuffer = new char[0];
+
+    /**
+     * Returns the scratch buffer strings are decoded into, large enough for {@code charCount} chars. The buffer is reused by
+     * every string read from this stream and grows to the largest one.
+     */
+    protected final char[] charBuffer(int charCount) {
+        if (charBuffer.length < charCount) {
+            charBuffer = new char[ArrayUtil.oversize(charCount, Character.BYTES)];
         }
-        return new String(buffer, 0, charCount);
+        return charBuffer;
     }
 
     public final float readFloat() throws IOException {
@@ -355,52 +544,363 @@ public abstract class StreamInput extends InputStream {
         return (Map<String, Object>) readGenericValue();
     }
 
+    /**
+     * Reads a map written with {@link StreamOutput#writeMap(Map)}, keeping only the given dotted paths such as
+     * {@code user.name} or {@code geo.lat}. A path includes everything below it, and paths go through lists and arrays into
+     * the maps they hold. Values that are not included are skipped rather than decoded, and maps that end up empty are left
+     * out.
+     */
+    @Nullable
+    public Map<String, Object> readMap(Set<String> includePaths) throws IOException {
+        final byte type = readByte();
+        if (type == -1) {
+            return null;
+        }
+        if (LazyMap.isMap(type) == false) {
+            throw new IOException("Can't read a map from type [" + type + "]");
+        }
+        return readFilteredMap(type, IncludePaths.compile(includePaths));
+    }
+
+    private Map<String, Object> readFilteredMap(byte type, IncludePaths includePaths) throws IOException {
+        final boolean sharedKeys = type >= 25;
+        final int size = readArraySize();
+        final Map<String, Object> map = type == 9 || type == 25 ? new LinkedHashMap<>() : new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            // keys have to be read anyway to know which values to keep
+            final String key = sharedKeys ? readSharedString() : readCachedString();
+            final IncludePaths child = includePaths.child(key);
+            if (child == null) {
+                skipGenericValue();
+            } else if (child.includesAll()) {
+                map.put(key, readGenericValue());
+            } else {
+                final Object value = readFilteredValue(child);
+                if (value != null) {
+                    map.put(key, value);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Reads the parts of a generic value that are below the given paths, or returns {@code null} if there are none.
+     */
+    @Nullable
+    private Object readFilteredValue(IncludePaths includePaths) throws IOException {
+        final byte type = readByte();
+        if (LazyMap.isMap(type)) {
+            final Map<String, Object> map = readFilteredMap(type, includePaths);
+            return map.isEmpty() ? null : map;
+        } else if (type == 7 || type == 8) {
+            final int size = readArraySize();
+            final List<Object> list = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                final Object value = readFilteredValue(includePaths);
+                if (value != null) {
+                    list.add(value);
+                }
+            }
+            if (list.isEmpty()) {
+                return null;
+            }
+            // arrays come back as arrays, like readGenericValue reads them
+            return type == 7 ? list : list.toArray();
+        }
+        // the paths go below a value that is not a map
+        skipGenericValue(type);
+        return null;
+    }
+
+    /**
+     * Reads a map written with {@link StreamOutput#writeMap(Map)} as a read-only view over its encoded bytes. The keys are
+     * only indexed when the map is first accessed and every value is only decoded when it is first asked for, nested maps
+     * and lists being views themselves, so documents of which only a few fields are used are cheap to read.
+     * <p>
+     * The view keeps an independent stream over the bytes of the map and its own view of the shared strings read so far, so
+     * this stream can be read further right away, and the view handed to another thread. Like streams, views are not thread
+     * safe themselves. Streams that are not {@linkplain #isBackedByMemory() backed by memory} read the
+     * map eagerly instead.
+     */
+    @Nullable
+    public Map<String, Object> readLazyMap() throws IOException {
+        if (isBackedByMemory() == false) {
+            return readMap();
+        }
+        final long start = position();
+        final byte type = readByte();
+        if (type == -1) {
+            return null;
+        }
+        if (LazyMap.isMap(type) == false) {
+            throw new IOException("Can't read a map from type [" + type + "]");
+        }
+        final int dictionarySize = stringDictionarySize;
+        // skipping also adds the strings the map shares for the first time to the dictionary, in the order they are in
+        skipGenericValue(type);
+        final long end = position();
+        seek(start);
+        if (end - start > Integer.MAX_VALUE) {
+            // too large for a bytes reference, read it again from the start, strings included
+            stringDictionarySize = dictionarySize;
+            return readMap();
+        }
+        final StreamInput in = readBytesReference((int) (end - start)).streamInput();
+        in.setStringCache(stringCache);
+        // the map only refers to the strings set so far, which never change: the view gets them without a copy, and
+        // does not see the strings this stream adds later
+        in.stringDictionary = stringDictionary;
+        in.stringDictionarySize = stringDictionarySize;
+        in.stringDictionaryFrozen = true;
+        return new LazyMap(in, in.position());
+    }
+
+    /**
+     * The number of generic value types, all type bytes are below it.
+     */
+    static final int GENERIC_TYPE_COUNT = 128;
+
+    /**
+     * The reader of every generic value type, indexed by type byte. Copied on write when {@link GenericValueRegistry}
+     * registers a type.
+     */
+    private static volatile Writeable.Reader<?>[] genericValueReaders = builtInReaders();
+
+    private static Writeable.Reader<?>[] builtInReaders() {
+        final Writeable.Reader<?>[] readers = new Writeable.Reader<?>[GENERIC_TYPE_COUNT];
+        readers[0] = StreamInput::readString;
+        readers[1] = StreamInput::readInt;
+        readers[2] = StreamInput::readLong;
+        readers[3] = StreamInput::readFloat;
+        readers[4] = StreamInput::readDouble;
+        readers[5] = StreamInput::readBoolean;
+        readers[6] = StreamInput::readByteArray;
+        readers[7] = StreamInput::readArrayList;
+        readers[8] = StreamInput::readArray;
+        readers[9] = in -> in.readLinkedHashMap(false);
+        readers[10] = in -> in.readHashMap(false);
+        readers[11] = StreamInput::readByte;
+        readers[12] = StreamInput::readDate;
+        readers[14] = StreamInput::readBytesReference;
+        readers[16] = StreamInput::readShort;
+        readers[17] = StreamInput::readIntArray;
+        readers[18] = StreamInput::readLongArray;
+        readers[19] = StreamInput::readFloatArray;
+        readers[20] = StreamInput::readDoubleArray;
+        readers[23] = StreamInput::readZonedDateTime;
+        readers[24] = StreamInput::readSharedString;
+        readers[25] = in -> in.readLinkedHashMap(true);
+        readers[26] = in -> in.readHashMap(true);
+        readers[27] = StreamInput::readIntList;
+        readers[28] = StreamInput::readLongList;
+        readers[29] = StreamInput::readFloatList;
+        readers[30] = StreamInput::readDoubleList;
+        readers[31] = StreamInput::readStringList;
+        return readers;
+    }
+
+    /**
+     * The skipper of every application type registered through {@link GenericValueRegistry}, indexed by type byte. The
+     * built-in types are skipped by {@link #skipGenericValue(byte)} itself.
+     */
+    private static volatile Writeable.Skipper[] genericValueSkippers = new Writeable.Skipper[GENERIC_TYPE_COUNT];
+
+    /**
+     * Returns whether the given generic value type has a reader.
+     */
+    static boolean hasGenericValueReader(int type) {
+        return genericValueReaders[type] != null;
+    }
+
+    /**
+     * Registers the reader of an application type, see {@link GenericValueRegistry}.
+     */
+    static synchronized void registerGenericValueReader(int type, Writeable.Reader<?> reader) {
+        final Writeable.Skipper[] skippers = genericValueSkippers.clone();
+        // application types only know how to read themselves, so skipping them reads them
+        skippers[type] = reader::read;
+        genericValueSkippers = skippers;
+        final Writeable.Reader<?>[] readers = genericValueReaders.clone();
+        readers[type] = reader;
+        genericValueReaders = readers;
+    }
+
     @Nullable
     public Object readGenericValue() throws IOException {
         byte type = readByte();
+        if (type == -1) {
+            return null;
+        }
+        final Writeable.Reader<?> reader = type >= 0 ? genericValueReaders[type] : null;
+        if (reader == null) {
+            throw new IOException("Can't read unknown type [" + type + "]");
+        }
+        return reader.read(this);
+    }
+
+    /**
+     * Advances past a value written with {@link StreamOutput#writeGenericValue(Object)} without building it: only type bytes
+     * and length prefixes are read, and the values themselves are skipped. Shared strings are the exception, a string that is
+     * shared for the first time is still read so that later references to it can be resolved.
+     */
+    public void skipGenericValue() throws IOException {
+        skipGenericValue(readByte());
+    }
+
+    private void skipGenericValue(byte type) throws IOException {
+        // a switch rather than a table of skippers so that skipping nested values inlines
         switch (type) {
             case -1:
-                return null;
+                return;
             case 0:
-                return readString();
+                skipString();
+                return;
+            case 5:
+            case 11:
+                skipBytes(1);
+                return;
+            case 16:
+                skipBytes(Short.BYTES);
+                return;
             case 1:
-                return readInt();
-            case 2:
-                return readLong();
             case 3:
-                return readFloat();
+                skipBytes(Integer.BYTES);
+                return;
+            case 2:
             case 4:
-                return readDouble();
-            case 5:
-                return readBoolean();
+            case 12:
+                skipBytes(Long.BYTES);
+                return;
             case 6:
-                return readByteArray();
+            case 14:
+                skipByteArray();
+                return;
             case 7:
-                return readArrayList();
             case 8:
-                return readArray();
+                for (int i = readArraySize(); i > 0; i--) {
+                    skipGenericValue();
+                }
+                return;
             case 9:
-                return readLinkedHashMap();
             case 10:
-                return readHashMap();
-            case 11:
-                return readByte();
-            case 12:
-                return readDate();
-            case 16:
-                return readShort();
+                skipMap(false);
+                return;
+            case 25:
+            case 26:
+                skipMap(true);
+                return;
             case 17:
-                return readIntArray();
-            case 18:
-                return readLongArray();
             case 19:
-                return readFloatArray();
+            case 27:
+            case 29:
+                skipBytes((long) readArraySize() * Integer.BYTES);
+                return;
+            case 18:
             case 20:
-                return readDoubleArray();
+            case 28:
+            case 30:
+                skipBytes((long) readArraySize() * Long.BYTES);
+                return;
             case 23:
-                return readZonedDateTime();
+                skipString();
+                skipBytes(Long.BYTES);
+                return;
+            case 24:
+                // a string that is shared for the first time must still be added to the dictionary for later references to it
+                readSharedString();
+                return;
+            case 31:
+                for (int i = readArraySize(); i > 0; i--) {
+                    skipString();
+                }
+                return;
             default:
-                throw new IOException("Can't read unknown type [" + type + "]");
+                final Writeable.Skipper skipper = type >= 0 ? genericValueSkippers[type] : null;
+                if (skipper == null) {
+                    throw new IOException("Can't skip unknown type [" + type + "]");
+                }
+                skipper.skip(this);
+        }
+    }
+
+    /**
+     * Advances past a string written with {@link StreamOutput#writeString(String)}. Only the leading byte of every char is
+     * looked at, to know how many bytes it is encoded on.
+     */
+    public void skipString() throws IOException {
+        skipChars(readArraySize());
+    }
+
+    /**
+     * Skips {@code charCount} characters whose length prefix has already been read. Implementations that have the encoded
+     * bytes at hand override this to scan them without copying them out first.
+     */
+    protected void skipChars(int charCount) throws IOException {
+        int remaining = charCount;
+        // the number of trailing bytes of the last char that was started
+        int pending = 0;
+        final byte[] buffer = scratchBuffer(remaining);
+        while (remaining > 0 || pending > 0) {
+            // every remaining char takes at least one byte, so this never reads past the end of the string
+            final int chunk = (int) Math.min(buffer.length, (long) remaining + pending);
+            readBytes(buffer, 0, chunk);
+            for (int offset = 0; offset < chunk; offset++) {
+                if (pending > 0) {
+                    pending--;
+                } else {
+                    pending = Utf8Codec.encodedLength(buffer[offset] & 0xff) - 1;
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances past a byte array written with {@link StreamOutput#writeByteArray(byte[])}, or a bytes reference written with
+     * {@link StreamOutput#writeBytesReference}.
+     */
+    public void skipByteArray() throws IOException {
+        skipBytes(readArraySize());
+    }
+
+    /**
+     * Advances past an array or a list whose elements are skipped by the given {@code skipper}, for instance one written with
+     * {@link StreamOutput#writeArray(Writeable.Writer, Object[])} or {@link StreamOutput#writeCollection(Collection, Writeable.Writer)}.
+     */
+    public void skipArray(final Writeable.Skipper skipper) throws IOException {
+        final int size = readArraySize();
+        for (int i = 0; i < size; i++) {
+            skipper.skip(this);
+        }
+    }
+
+    private void skipMap(boolean sharedKeys) throws IOException {
+        final int size = readArraySize();
+        for (int i = 0; i < size; i++) {
+            if (sharedKeys) {
+                readSharedString();
+            } else {
+                skipString();
+            }
+            skipGenericValue();
+        }
+    }
+
+    /**
+     * Advances exactly {@code n} bytes.
+     *
+     * @throws EOFException if the stream ends before
+     */
+    public void skipBytes(long n) throws IOException {
+        while (n > 0) {
+            long skipped = skip(n);
+            if (skipped <= 0) {
+                // skip may skip nothing without being at the end of the stream, reading tells them apart
+                readByte();
+                skipped = 1;
+            }
+            n -= skipped;
         }
     }
 
@@ -445,20 +945,20 @@ public abstract class StreamInput extends InputStream {
         return list8;
     }
 
-    private Map readLinkedHashMap() throws IOException {
+    private Map readLinkedHashMap(boolean sharedKeys) throws IOException {
         int size9 = readArraySize();
         Map map9 = new LinkedHashMap(size9);
         for (int i = 0; i < size9; i++) {
-            map9.put(readString(), readGenericValue());
+            map9.put(sharedKeys ? readSharedString() : readCachedString(), readGenericValue());
         }
         return map9;
     }
 
-    private Map readHashMap() throws IOException {
+    private Map readHashMap(boolean sharedKeys) throws IOException {
         int size10 = readArraySize();
         Map map10 = new HashMap(size10);
         for (int i = 0; i < size10; i++) {
-            map10.put(readString(), readGenericValue());
+            map10.put(sharedKeys ? readSharedString() : readCachedString(), readGenericValue());
         }
         return map10;
     }
@@ -468,10 +968,14 @@ public abstract class StreamInput extends InputStream {
     }
 
     public int[] readIntArray() throws IOException {
-        int length = readArraySize();
-        int[] values = new int[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = readInt();
+        final int length = readArraySize();
+        final int[] values = new int[length];
+        final byte[] buffer = scratchBuffer((long) length * Integer.BYTES);
+        final int chunkSize = buffer.length / Integer.BYTES;
+        for (int offset = 0; offset < length; offset += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - offset);
+            readBytes(buffer, 0, chunkLength * Integer.BYTES);
+            ByteUtils.readIntsBE(buffer, 0, values, offset, chunkLength);
         }
         return values;
     }
@@ -486,14 +990,22 @@ public abstract class StreamInput extends InputStream {
     }
 
     public long[] readLongArray() throws IOException {
-        int length = readArraySize();
-        long[] values = new long[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = readLong();
-        }
+        final int length = readArraySize();
+        final long[] values = new long[length];
+        readLongs(values, 0, length);
         return values;
     }
 
+    private void readLongs(long[] values, int offset, int length) throws IOException {
+        final byte[] buffer = scratchBuffer((long) length * Long.BYTES);
+        final int chunkSize = buffer.length / Long.BYTES;
+        for (int i = 0; i < length; i += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - i);
+            readBytes(buffer, 0, chunkLength * Long.BYTES);
+            ByteUtils.readLongsBE(buffer, 0, values, offset + i, chunkLength);
+        }
+    }
+
     public long[] readVLongArray() throws IOException {
         int length = readArraySize();
         long[] values = new long[length];
@@ -504,23 +1016,336 @@ public abstract class StreamInput extends InputStream {
     }
 
     public float[] readFloatArray() throws IOException {
-        int length = readArraySize();
-        float[] values = new float[length];
-        for (int i = 0; i < length; i++) {
-            values[i] = readFloat();
+        final int length = readArraySize();
+        final float[] values = new float[length];
+        final byte[] buffer = scratchBuffer((long) length * Float.BYTES);
+        final int chunkSize = buffer.length / Float.BYTES;
+        for (int offset = 0; offset < length; offset += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - offset);
+            readBytes(buffer, 0, chunkLength * Float.BYTES);
+            ByteUtils.readFloatsBE(buffer, 0, values, offset, chunkLength);
         }
         return values;
     }
 
     public double[] readDoubleArray() throws IOException {
-        int length = readArraySize();
-        double[] values = new double[length];
+        final int length = readArraySize();
+        final double[] values = new double[length];
+        final byte[] buffer = scratchBuffer((long) length * Double.BYTES);
+        final int chunkSize = buffer.length / Double.BYTES;
+        for (int offset = 0; offset < length; offset += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - offset);
+            readBytes(buffer, 0, chunkLength * Double.BYTES);
+            ByteUtils.readDoublesBE(buffer, 0, values, offset, chunkLength);
+        }
+        return values;
+    }
+
+    /**
+     * Reads a list written with {@link StreamOutput#writeIntList(List)} or {@link StreamOutput#writeIntArray(int[])} as a
+     * {@link IntList} over the decoded array, so that the values are not boxed unless they are accessed as objects.
+     */
+    public IntList readIntList() throws IOException {
+        return new IntList(readIntArray());
+    }
+
+    /**
+     * Reads a list written with {@link StreamOutput#writeLongList(List)} or {@link StreamOutput#writeLongArray(long[])} as a
+     * {@link LongList} over the decoded array, so that the values are not boxed unless they are accessed as objects.
+     */
+    public LongList readLongList() throws IOException {
+        return new LongList(readLongArray());
+    }
+
+    /**
+     * Reads a list written with {@link StreamOutput#writeFloatList(List)} or {@link StreamOutput#writeFloatArray(float[])} as a
+     * {@link FloatList} over the decoded array, so that the values are not boxed unless they are accessed as objects.
+     */
+    public FloatList readFloatList() throws IOException {
+        return new FloatList(readFloatArray());
+    }
+
+    /**
+     * Reads a list written with {@link StreamOutput#writeDoubleList(List)} or {@link StreamOutput#writeDoubleArray(double[])} as a
+     * {@link DoubleList} over the decoded array, so that the values are not boxed unless they are accessed as objects.
+     */
+    public DoubleList readDoubleList() throws IOException {
+        return new DoubleList(readDoubleArray());
+    }
+
+    /**
+     * Reads an int array written with {@link StreamOutput#writePackedIntArray(int[])}.
+     */
+    public int[] readPackedIntArray() throws IOException {
+        final int length = readPackedArraySize();
+        final int[] values = new int[length];
+        final long[] deltas = packingBuffers().values;
+        for (int start = 0; start < length; start += BlockPacking.BLOCK_SIZE) {
+            final int count = Math.min(BlockPacking.BLOCK_SIZE, length - start);
+            final long min = readPackedBlock(deltas, count);
+            for (int i = 0; i < count; i++) {
+                values[start + i] = (int) (min + deltas[i]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads a long array written with {@link StreamOutput#writePackedLongArray(long[])}.
+     */
+    public long[] readPackedLongArray() throws IOException {
+        final int length = readPackedArraySize();
+        final long[] values = new long[length];
+        final long[] deltas = packingBuffers().values;
+        for (int start = 0; start < length; start += BlockPacking.BLOCK_SIZE) {
+            final int count = Math.min(BlockPacking.BLOCK_SIZE, length - start);
+            final long min = readPackedBlock(deltas, count);
+            for (int i = 0; i < count; i++) {
+                values[start + i] = min + deltas[i];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads an int array written with {@link StreamOutput#writeDeltaIntArray(int[])}.
+     */
+    public int[] readDeltaIntArray() throws IOException {
+        final int length = readArraySize();
+        final int[] values = new int[length];
+        int previous = 0;
+        for (int i = 0; i < length; i++) {
+            previous += BitUtil.zigZagDecode(readVInt());
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    /**
+     * Reads a long array written with {@link StreamOutput#writeDeltaLongArray(long[])}.
+     */
+    public long[] readDeltaLongArray() throws IOException {
+        final int length = readArraySize();
+        final long[] values = new long[length];
+        long previous = 0;
         for (int i = 0; i < length; i++) {
-            values[i] = readDouble();
+            previous += readZLong();
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    /**
+     * Reads an int array written with {@link StreamOutput#writePackedDeltaIntArray(int[])}.
+     */
+    public int[] readPackedDeltaIntArray() throws IOException {
+        final int length = readPackedArraySize();
+        final int[] values = new int[length];
+        if (length == 0) {
+            return values;
+        }
+        long previous = readZLong();
+        values[0] = (int) previous;
+        final long[] deltas = packingBuffers().values;
+        for (int start = 1; start < length; start += BlockPacking.BLOCK_SIZE) {
+            final int count = Math.min(BlockPacking.BLOCK_SIZE, length - start);
+            final long min = readPackedBlock(deltas, count);
+            for (int i = 0; i < count; i++) {
+                previous += min + deltas[i];
+                values[start + i] = (int) previous;
+            }
         }
         return values;
     }
 
+    /**
+     * Reads a long array written with {@link StreamOutput#writePackedDeltaLongArray(long[])}.
+     */
+    public long[] readPackedDeltaLongArray() throws IOException {
+        final int length = readPackedArraySize();
+        final long[] values = new long[length];
+        if (length == 0) {
+            return values;
+        }
+        long previous = readZLong();
+        values[0] = previous;
+        final long[] deltas = packingBuffers().values;
+        for (int start = 1; start < length; start += BlockPacking.BLOCK_SIZE) {
+            final int count = Math.min(BlockPacking.BLOCK_SIZE, length - start);
+            final long min = readPackedBlock(deltas, count);
+            for (int i = 0; i < count; i++) {
+                previous += min + deltas[i];
+                values[start + i] = previous;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads a double array written with {@link StreamOutput#writeCompressedDoubleArray(double[])}.
+     */
+    public double[] readCompressedDoubleArray() throws IOException {
+        final double[] values = new double[readCompressedArraySize()];
+        final XorCompression.Decoder decoder = new XorCompression.Decoder(this, XorCompression.DOUBLE_BITS);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Double.longBitsToDouble(decoder.next());
+        }
+        return values;
+    }
+
+    /**
+     * Reads a float array written with {@link StreamOutput#writeCompressedFloatArray(float[])}.
+     */
+    public float[] readCompressedFloatArray() throws IOException {
+        final float[] values = new float[readCompressedArraySize()];
+        final XorCompression.Decoder decoder = new XorCompression.Decoder(this, XorCompression.FLOAT_BITS);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Float.intBitsToFloat((int) decoder.next());
+        }
+        return values;
+    }
+
+    private int readCompressedArraySize() throws IOException {
+        final int length = readVInt();
+        validateArraySize(length);
+        // every value takes at least one bit
+        ensureCanReadBytes((length + Byte.SIZE - 1) / Byte.SIZE);
+        return length;
+    }
+
+    /**
+     * Reads a float array written with one of the {@code StreamOutput#writeHalfFloatArray} methods.
+     */
+    public float[] readHalfFloatArray() throws IOException {
+        final int length = readArraySize();
+        final float[] values = new float[length];
+        final byte[] buffer = scratchBuffer((long) length * Short.BYTES);
+        final int chunkSize = buffer.length / Short.BYTES;
+        for (int offset = 0; offset < length; offset += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - offset);
+            readBytes(buffer, 0, chunkLength * Short.BYTES);
+            for (int i = 0; i < chunkLength; i++) {
+                values[offset + i] = HalfFloat.toFloat((short) ((buffer[2 * i] << 8) | (buffer[2 * i + 1] & 0xFF)));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads a double array written with one of the {@code StreamOutput#writeHalfFloatArray} methods.
+     */
+    public double[] readHalfFloatDoubleArray() throws IOException {
+        final int length = readArraySize();
+        final double[] values = new double[length];
+        final byte[] buffer = scratchBuffer((long) length * Short.BYTES);
+        final int chunkSize = buffer.length / Short.BYTES;
+        for (int offset = 0; offset < length; offset += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - offset);
+            readBytes(buffer, 0, chunkLength * Short.BYTES);
+            for (int i = 0; i < chunkLength; i++) {
+                values[offset + i] = HalfFloat.toFloat((short) ((buffer[2 * i] << 8) | (buffer[2 * i + 1] & 0xFF)));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads a float array written with one of the {@code StreamOutput#writeByteQuantizedArray} methods.
+     */
+    public float[] readByteQuantizedArray() throws IOException {
+        final int length = readArraySize();
+        final float[] values = new float[length];
+        if (length == 0) {
+            return values;
+        }
+        final float min = readFloat();
+        final float step = readFloat();
+        final byte[] buffer = scratchBuffer(length);
+        for (int offset = 0; offset < length; offset += buffer.length) {
+            final int chunkLength = Math.min(buffer.length, length - offset);
+            readBytes(buffer, 0, chunkLength);
+            for (int i = 0; i < chunkLength; i++) {
+                values[offset + i] = min + (buffer[i] & 0xFF) * step;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads a double array written with one of the {@code StreamOutput#writeByteQuantizedArray} methods.
+     */
+    public double[] readByteQuantizedDoubleArray() throws IOException {
+        final int length = readArraySize();
+        final double[] values = new double[length];
+        if (length == 0) {
+            return values;
+        }
+        final double min = readFloat();
+        final double step = readFloat();
+        final byte[] buffer = scratchBuffer(length);
+        for (int offset = 0; offset < length; offset += buffer.length) {
+            final int chunkLength = Math.min(buffer.length, length - offset);
+            readBytes(buffer, 0, chunkLength);
+            for (int i = 0; i < chunkLength; i++) {
+                values[offset + i] = min + (buffer[i] & 0xFF) * step;
+            }
+        }
+        return values;
+    }
+
+    private int readPackedArraySize() throws IOException {
+        final int length = readVInt();
+        validateArraySize(length);
+        // every block takes at least two bytes, even when all of its values are the same
+        ensureCanReadBytes(((length + BlockPacking.BLOCK_SIZE - 1) >>> BlockPacking.BLOCK_SHIFT) * 2);
+        return length;
+    }
+
+    /**
+     * Reads a block of {@code count} values into {@code deltas} as their difference to the minimum of the block, and returns
+     * that minimum.
+     */
+    private long readPackedBlock(long[] deltas, int count) throws IOException {
+        final int bitsPerValue = readByte() & 0xFF;
+        if (bitsPerValue > Long.SIZE) {
+            throw new IOException("Invalid packed block of " + bitsPerValue + " bits per value");
+        }
+        final long min = readZLong();
+        if (bitsPerValue == 0) {
+            Arrays.fill(deltas, 0, count, 0L);
+            return min;
+        }
+        final long[] words = packingBuffers().words;
+        readLongs(words, 0, BlockPacking.wordCount(count, bitsPerValue));
+        BlockPacking.unpack(words, count, bitsPerValue, deltas);
+        return min;
+    }
+
+    private BlockPacking.Buffers packingBuffers;
+
+    private BlockPacking.Buffers packingBuffers() {
+        if (packingBuffers == null) {
+            packingBuffers = new BlockPacking.Buffers();
+        }
+        return packingBuffers;
+    }
+
+    private static final int SCRATCH_BUFFER_SIZE = 8 * 1024;
+
+    private byte[] scratchBuffer = new byte[0];
+
+    /**
+     * Returns the scratch buffer used to decode primitive arrays and strings in bulk, large enough for {@code size} bytes or
+     * {@link #SCRATCH_BUFFER_SIZE} bytes, whichever is smaller. Larger values are decoded chunk by chunk.
+     */
+    private byte[] scratchBuffer(long size) {
+        final int bufferSize = (int) Math.min(size, SCRATCH_BUFFER_SIZE);
+        if (scratchBuffer.length < bufferSize) {
+            scratchBuffer = new byte[Math.max(bufferSize, Long.BYTES)];
+        }
+        return scratchBuffer;
+    }
+
     public byte[] readByteArray() throws IOException {
         final int length = readArraySize();
         final byte[] bytes = new byte[length];
@@ -581,6 +1406,74 @@ public abstract class StreamInput extends InputStream {
         }
     }
 
+    @Nullable
+    private NamedWriteableRegistry namedWriteableRegistry;
+
+    /**
+     * Sets the registry {@link #readNamedWriteable(Class)} resolves the readers of named writeables with. It must hold the
+     * same entries as the one the stream was written with.
+     */
+    public void setNamedWriteableRegistry(@Nullable NamedWriteableRegistry namedWriteableRegistry) {
+        this.namedWriteableRegistry = namedWriteableRegistry;
+    }
+
+    @Nullable
+    public NamedWriteableRegistry getNamedWriteableRegistry() {
+        return namedWriteableRegistry;
+    }
+
+    /**
+     * Reads a {@link NamedWriteable} written with {@link StreamOutput#writeNamedWriteable(NamedWriteable)}: the id of its
+     * registry entry, resolved to a reader through the {@link NamedWriteableRegistry}, followed by the object itself.
+     *
+     * @param categoryClass the category the object is expected to belong to
+     * @throws IllegalStateException if no {@link NamedWriteableRegistry} is set
+     */
+    public <C extends NamedWriteable> C readNamedWriteable(Class<C> categoryClass) throws IOException {
+        if (namedWriteableRegistry == null) {
+            throw new IllegalStateException("can't read named writeable of category [" + categoryClass.getName()
+                + "] without a NamedWriteableRegistry");
+        }
+        final int id = readVInt();
+        final NamedWriteableRegistry.Entry entry;
+        try {
+            entry = namedWriteableRegistry.getEntry(id);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        // checked before reading, so that the reader of an unrelated category never consumes the stream
+        if (categoryClass.isAssignableFrom(entry.categoryClass) == false) {
+            throw new IOException("NamedWriteable [" + entry.categoryClass.getName() + "][" + entry.name + "] is not a ["
+                + categoryClass.getName() + "]");
+        }
+        final Object value = entry.reader.read(this);
+        if (value == null) {
+            throw new IOException("Writeable.Reader [" + entry.reader + "] returned null which is not allowed and probably means"
+                + " it screwed up the stream.");
+        }
+        return categoryClass.cast(value);
+    }
+
+    @Nullable
+    public <C extends NamedWriteable> C readOptionalNamedWriteable(Class<C> categoryClass) throws IOException {
+        if (readBoolean()) {
+            return readNamedWriteable(categoryClass);
+        }
+        return null;
+    }
+
+    /**
+     * Reads a list of {@link NamedWriteable}s written with {@link StreamOutput#writeNamedWriteableList(List)}.
+     */
+    public <T extends NamedWriteable> List<T> readNamedWriteableList(Class<T> categoryClass) throws IOException {
+        int count = readArraySize();
+        List<T> builder = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            builder.add(readNamedWriteable(categoryClass));
+        }
+        return builder;
+    }
+
     /**
      * Read a {@link List} of {@link Streamable} objects, using the {@code constructor} to instantiate each instance.
      * <p>
@@ -677,26 +1570,30 @@ public abstract class StreamInput extends InputStream {
     }
 
     public static StreamInput wrap(byte[] bytes, int offset, int length) {
-        return new InputStreamStreamInput(new ByteArrayInputStream(bytes, offset, length), length);
+        return new ByteArrayStreamInput(bytes, offset, length);
     }
 
     /**
      * Reads a vint via {@link #readVInt()} and applies basic checks to ensure the read array size is sane.
      * This method uses {@link #ensureCanReadBytes(int)} to ensure this stream has enough bytes to read for the read array size.
      */
-    private int readArraySize() throws IOException {
+    int readArraySize() throws IOException {
         final int arraySize = readVInt();
+        validateArraySize(arraySize);
+        // lets do a sanity check that if we are reading an array size that is bigger that the remaining bytes we can safely
+        // throw an exception instead of allocating the array based on the size. A simple corrutpted byte can make a node go OOM
+        // if the size is large and for perf reasons we allocate arrays ahead of time
+        ensureCanReadBytes(arraySize);
+        return arraySize;
+    }
+
+    private static void validateArraySize(int arraySize) {
         if (arraySize > ArrayUtil.MAX_ARRAY_LENGTH) {
             throw new IllegalStateException("array length must be <= to " + ArrayUtil.MAX_ARRAY_LENGTH  + " but was: " + arraySize);
         }
         if (arraySize < 0) {
             throw new NegativeArraySizeException("array size must be positive but was: " + arraySize);
         }
-        // lets do a sanity check that if we are reading an array size that is bigger that the remaining bytes we can safely
-        // throw an exception instead of allocating the array based on the size. A simple corrutpted byte can make a node go OOM
-        // if the size is large and for perf reasons we allocate arrays ahead of time
-        ensureCanReadBytes(arraySize);
-        return arraySize;
     }
 
     /**
@@ -2,7 +2,14 @@ package love.wangqi.stream;
 
 import love.wangqi.common.ArrayUtil;
 import love.wangqi.common.BitUtil;
+import love.wangqi.common.ByteUtils;
+import love.wangqi.common.DoubleList;
+import love.wangqi.common.FloatList;
+import love.wangqi.common.HalfFloat;
+import love.wangqi.common.IntList;
+import love.wangqi.common.LongList;
 import love.wangqi.common.Nullable;
+import love.wangqi.common.bytes.BytesReference;
 import love.wangqi.stream.Writeable.Writer;
 
 import java.io.IOException;
@@ -70,6 +77,31 @@ public abstract class StreamOutput extends OutputStream {
         writeBytes(b, 0, b.length);
     }
 
+    /**
+     * Writes the bytes reference, including a length header.
+     */
+    public void writeBytesReference(@Nullable BytesReference bytes) throws IOException {
+        if (bytes == null) {
+            writeVInt(0);
+            return;
+        }
+        writeVInt(bytes.length());
+        bytes.writeTo(this);
+    }
+
+    /**
+     * Writes an optional bytes reference including a length header. Use this if you need to differentiate between null
+     * and empty bytes references.
+     */
+    public void writeOptionalBytesReference(@Nullable BytesReference bytes) throws IOException {
+        if (bytes == null) {
+            writeBoolean(false);
+        } else {
+            writeBoolean(true);
+            writeBytesReference(bytes);
+        }
+    }
+
     public final void writeShort(short v) throws IOException {
         writeByte((byte) (v >> 8));
         writeByte((byte) v);
@@ -92,11 +124,13 @@ public abstract class StreamOutput extends OutputStream {
      * using {@link #writeInt}
      */
     public void writeVInt(int i) throws IOException {
-        while ((i & ~0x7F) != 0) {
-            writeByte((byte) ((i & 0x7f) | 0x80));
-            i >>>= 7;
+        if ((i & ~0x7F) == 0) {
+            writeByte((byte) i);
+            return;
         }
-        writeByte((byte) i);
+        // encode into the scratch buffer so that the bytes go out in a single call
+        final byte[] buffer = primitiveArrayBuffer(5);
+        writeBytes(buffer, 0, ByteUtils.writeVInt(i, buffer, 0));
     }
 
     /**
@@ -124,11 +158,12 @@ public abstract class StreamOutput extends OutputStream {
      * {@link #writeVLong(long)} instead.
      */
     void writeVLongNoCheck(long i) throws IOException {
-        while ((i & ~0x7F) != 0) {
-            writeByte((byte) ((i & 0x7f) | 0x80));
-            i >>>= 7;
+        if ((i & ~0x7FL) == 0) {
+            writeByte((byte) i);
+            return;
         }
-        writeByte((byte) i);
+        final byte[] buffer = primitiveArrayBuffer(10);
+        writeBytes(buffer, 0, ByteUtils.writeVLong(i, buffer, 0));
     }
 
     /**
@@ -140,12 +175,7 @@ public abstract class StreamOutput extends OutputStream {
      */
     public void writeZLong(long i) throws IOException {
         // zig-zag encoding cf. https://developers.google.com/protocol-buffers/docs/encoding?hl=en
-        long value = BitUtil.zigZagEncode(i);
-        while ((value & 0xFFFFFFFFFFFFFF80L) != 0L) {
-            writeByte((byte)((value & 0x7F) | 0x80));
-            value >>>= 7;
-        }
-        writeByte((byte) (value & 0x7F));
+        writeVLongNoCheck(BitUtil.zigZagEncode(i));
     }
 
     public void writeOptionalLong(@Nullable Long l) throws IOException {
@@ -196,38 +226,107 @@ public abstract class StreamOutput extends OutputStream {
         }
     }
 
+    private static final int STRING_CHUNK_SIZE = 1024;
+
     private byte[] convertStringBuffer = new byte[0]; // TODO should we reduce it to 0 bytes once the stream is closed?
 
     public void writeString(String str) throws IOException {
+        writeString((CharSequence) str);
+    }
+
+    /**
+     * Writes the chars of the given sequence, for instance a {@link StringBuilder}, the same way {@link #writeString(String)}
+     * writes a string, without converting it to a {@link String} first. Implementations that have room for the encoded
+     * string in their own buffer override this to encode it there directly.
+     */
+    public void writeString(CharSequence str) throws IOException {
         final int charCount = str.length();
-        final int bufferSize = Math.min(3 * charCount, 1024); // at most 3 bytes per character is needed here
+        writeVInt(charCount);
+        // at most 3 bytes per character is needed here
+        final int bufferSize = Utf8Codec.MAX_BYTES_PER_CHAR * Math.min(charCount, STRING_CHUNK_SIZE);
         if (convertStringBuffer.length < bufferSize) { // we don't use ArrayUtils.grow since copying the bytes is unnecessary
             convertStringBuffer = new byte[ArrayUtil.oversize(bufferSize, Byte.BYTES)];
         }
-        byte[] buffer = convertStringBuffer;
-        int offset = 0;
-        writeVInt(charCount);
-        for (int i = 0; i < charCount; i++) {
-            final int c = str.charAt(i);
-            if (c <= 0x007F) {
-                buffer[offset++] = ((byte) c);
-            } else if (c > 0x07FF) {
-                buffer[offset++] = ((byte) (0xE0 | c >> 12 & 0x0F));
-                buffer[offset++] = ((byte) (0x80 | c >> 6 & 0x3F));
-                buffer[offset++] = ((byte) (0x80 | c >> 0 & 0x3F));
-            } else {
-                buffer[offset++] = ((byte) (0xC0 | c >> 6 & 0x1F));
-                buffer[offset++] = ((byte) (0x80 | c >> 0 & 0x3F));
-            }
-            // make sure any possible char can fit into the buffer in any possible iteration
-            // we need at most 3 bytes so we flush the buffer once we have less than 3 bytes
-            // left before we start another iteration
-            if (offset > buffer.length - 3) {
-                writeBytes(buffer, offset);
-                offset = 0;
-            }
+        final byte[] buffer = convertStringBuffer;
+        for (int i = 0; i < charCount; i += STRING_CHUNK_SIZE) {
+            final int length = Utf8Codec.encode(str, i, Math.min(charCount, i + STRING_CHUNK_SIZE), buffer, 0);
+            writeBytes(buffer, length);
+        }
+    }
+
+    /**
+     * The maximum number of strings in the string dictionary. Both sides stop adding to it once it is full, so that later new
+     * strings are written in full every time.
+     */
+    static final int MAX_STRING_DICTIONARY_SIZE = 1 << 14;
+
+    /**
+     * String values longer than this rarely repeat, {@link #writeGenericValue} writes them in full even when the string
+     * dictionary is enabled. Map keys always go through the dictionary.
+     */
+    static final int MAX_SHARED_STRING_VALUE_LENGTH = 64;
+
+    /**
+     * The id of every string written with {@link #writeSharedString(String)}, {@code null} unless the dictionary is enabled.
+     */
+    private Map<String, Integer> stringDictionary;
+
+    /**
+     * Enables the string dictionary for the rest of this stream: {@link #writeGenericValue} then writes map keys and short
+     * string values with {@link #writeSharedString(String)}, so that every string is written in full only once and repeats
+     * cost a vint. {@link StreamInput#readGenericValue()} understands both encodings, there is nothing to enable on the
+     * reading side, but the reader must read every value written to this stream in order, from a single
+     * {@link StreamInput}.
+     */
+    public void enableStringDictionary() {
+        if (stringDictionary == null) {
+            stringDictionary = new HashMap<>();
+        }
+    }
+
+    public boolean isStringDictionaryEnabled() {
+        return stringDictionary != null;
+    }
+
+    /**
+     * Forgets the strings written so far, the next value is written as if it was the first of the stream. Streams that can
+     * be {@link #reset()} call this when they are reset.
+     */
+    public void clearStringDictionary() {
+        if (stringDictionary != null) {
+            stringDictionary.clear();
+        }
+    }
+
+    /**
+     * Writes a string through the string dictionary: the first occurrence is written in full and assigned the next id, later
+     * occurrences are written as a reference to that id. Read with {@link StreamInput#readSharedString()}.
+     *
+     * @throws IllegalStateException if the dictionary is not {@linkplain #enableStringDictionary() enabled}
+     */
+    public void writeSharedString(String str) throws IOException {
+        if (stringDictionary == null) {
+            throw new IllegalStateException("the string dictionary is not enabled");
+        }
+        final Integer id = stringDictionary.get(str);
+        if (id != null) {
+            writeVInt(id + 1);
+            return;
+        }
+        if (stringDictionary.size() < MAX_STRING_DICTIONARY_SIZE) {
+            stringDictionary.put(str, stringDictionary.size());
+        }
+        writeVInt(0);
+        writeString(str);
+    }
+
+    public void writeOptionalString(@Nullable CharSequence str) throws IOException {
+        if (str == null) {
+            writeBoolean(false);
+        } else {
+            writeBoolean(true);
+            writeString(str);
         }
-        writeBytes(buffer, offset);
     }
 
     public void writeFloat(float v) throws IOException {
@@ -410,13 +509,19 @@ public abstract class StreamOutput extends OutputStream {
         }
     }
 
-    private static final Map<Class<?>, Writer> WRITERS;
+    private static final Map<Class<?>, Writer<Object>> WRITERS;
 
     static {
-        Map<Class<?>, Writer> writers = new HashMap<>();
+        Map<Class<?>, Writer<Object>> writers = new HashMap<>();
         writers.put(String.class, (o, v) -> {
-            o.writeByte((byte) 0);
-            o.writeString((String) v);
+            final String string = (String) v;
+            if (o.stringDictionary != null && string.length() <= MAX_SHARED_STRING_VALUE_LENGTH) {
+                o.writeByte((byte) 24);
+                o.writeSharedString(string);
+            } else {
+                o.writeByte((byte) 0);
+                o.writeString(string);
+            }
         });
         writers.put(Integer.class, (o, v) -> {
             o.writeByte((byte) 1);
@@ -445,8 +550,11 @@ public abstract class StreamOutput extends OutputStream {
             o.writeBytes(bytes);
         });
         writers.put(List.class, (o, v) -> {
-            o.writeByte((byte) 7);
             final List list = (List) v;
+            if (o.writeTypedList(list)) {
+                return;
+            }
+            o.writeByte((byte) 7);
             o.writeVInt(list.size());
             for (Object item : list) {
                 o.writeGenericValue(item);
@@ -461,16 +569,21 @@ public abstract class StreamOutput extends OutputStream {
             }
         });
         writers.put(Map.class, (o, v) -> {
+            final boolean sharedKeys = o.stringDictionary != null;
             if (v instanceof LinkedHashMap) {
-                o.writeByte((byte) 9);
+                o.writeByte(sharedKeys ? (byte) 25 : (byte) 9);
             } else {
-                o.writeByte((byte) 10);
+                o.writeByte(sharedKeys ? (byte) 26 : (byte) 10);
             }
             @SuppressWarnings("unchecked")
             final Map<String, Object> map = (Map<String, Object>) v;
             o.writeVInt(map.size());
             for (Map.Entry<String, Object> entry : map.entrySet()) {
-                o.writeString(entry.getKey());
+                if (sharedKeys) {
+                    o.writeSharedString(entry.getKey());
+                } else {
+                    o.writeString(entry.getKey());
+                }
                 o.writeGenericValue(entry.getValue());
             }
         });
@@ -482,6 +595,10 @@ public abstract class StreamOutput extends OutputStream {
             o.writeByte((byte) 12);
             o.writeLong(((Date) v).getTime());
         });
+        writers.put(BytesReference.class, (o, v) -> {
+            o.writeByte((byte) 14);
+            o.writeBytesReference((BytesReference) v);
+        });
         writers.put(Short.class, (o, v) -> {
             o.writeByte((byte) 16);
             o.writeShort((Short) v);
@@ -511,6 +628,148 @@ public abstract class StreamOutput extends OutputStream {
         WRITERS = Collections.unmodifiableMap(writers);
     }
 
+    /**
+     * Built-in types that are written by the writer of their super type, checked in order when a class has no writer of its
+     * own.
+     */
+    private static final Class<?>[] WRITER_SUPER_TYPES = {List.class, Object[].class, Map.class, Date.class,
+        BytesReference.class};
+
+    /**
+     * The writers of the types registered with {@link GenericValueRegistry}, in registration order.
+     */
+    private static volatile Map<Class<?>, Writer<Object>> customWriters = Collections.emptyMap();
+
+    /**
+     * The writer of every class {@link #writeGenericValue} has seen, resolved once per class. Replaced whenever a type is
+     * registered so that classes resolved before are resolved again.
+     */
+    private static volatile ClassValue<Writer<Object>> writerCache = newWriterCache();
+
+    private static ClassValue<Writer<Object>> newWriterCache() {
+        return new ClassValue<Writer<Object>>() {
+            @Override
+            protected Writer<Object> computeValue(Class<?> type) {
+                return resolveWriter(type);
+            }
+        };
+    }
+
+    /**
+     * Resolves the writer of the given class: its own built-in or registered writer, or else the writer of the first
+     * built-in and then registered super type it extends, or {@code null}.
+     */
+    private static Writer<Object> resolveWriter(Class<?> type) {
+        Writer<Object> writer = WRITERS.get(type);
+        if (writer != null) {
+            return writer;
+        }
+        final Map<Class<?>, Writer<Object>> custom = customWriters;
+        writer = custom.get(type);
+        if (writer != null) {
+            return writer;
+        }
+        for (Class<?> superType : WRITER_SUPER_TYPES) {
+            if (superType.isAssignableFrom(type)) {
+                return WRITERS.get(superType);
+            }
+        }
+        for (Map.Entry<Class<?>, Writer<Object>> entry : custom.entrySet()) {
+            if (entry.getKey().isAssignableFrom(type)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether values of exactly the given class have a built-in or registered writer.
+     */
+    static boolean hasWriter(Class<?> type) {
+        return WRITERS.containsKey(type) || customWriters.containsKey(type);
+    }
+
+    /**
+     * Registers the writer of an application type, see {@link GenericValueRegistry}.
+     */
+    static synchronized void registerWriter(Class<?> type, Writer<Object> writer) {
+        final Map<Class<?>, Writer<Object>> writers = new LinkedHashMap<>(customWriters);
+        writers.put(type, writer);
+        customWriters = Collections.unmodifiableMap(writers);
+        writerCache = newWriterCache();
+    }
+
+    /**
+     * Writes a non empty list whose elements are all {@link Integer}s, {@link Long}s, {@link Float}s, {@link Double}s or
+     * {@link String}s as a single typed array, without a type byte per element, so that it can be read back into a
+     * primitive-backed list such as {@link DoubleList}. Strings are left to the generic encoding when the string dictionary
+     * is enabled, which shares them between values.
+     *
+     * @return whether the list was written
+     */
+    @SuppressWarnings("unchecked")
+    private boolean writeTypedList(List<?> list) throws IOException {
+        final Class<?> elementType;
+        if (list instanceof DoubleList) {
+            elementType = Double.class;
+        } else if (list instanceof LongList) {
+            elementType = Long.class;
+        } else if (list instanceof IntList) {
+            elementType = Integer.class;
+        } else if (list instanceof FloatList) {
+            elementType = Float.class;
+        } else {
+            elementType = typedListElementType(list);
+        }
+        if (elementType == null || (elementType == String.class && stringDictionary != null)) {
+            return false;
+        }
+        if (elementType == Double.class) {
+            writeByte((byte) 30);
+            writeDoubleList((List<Double>) list);
+        } else if (elementType == Long.class) {
+            writeByte((byte) 28);
+            writeLongList((List<Long>) list);
+        } else if (elementType == Integer.class) {
+            writeByte((byte) 27);
+            writeIntList((List<Integer>) list);
+        } else if (elementType == Float.class) {
+            writeByte((byte) 29);
+            writeFloatList((List<Float>) list);
+        } else {
+            writeByte((byte) 31);
+            writeStringCollection((List<String>) list);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the class all elements of the given list share if it is one of the types typed lists are written for, or
+     * {@code null}.
+     */
+    @Nullable
+    private static Class<?> typedListElementType(List<?> list) {
+        if (list.isEmpty()) {
+            return null;
+        }
+        Class<?> elementType = null;
+        for (Object item : list) {
+            if (item == null) {
+                return null;
+            }
+            if (elementType == null) {
+                elementType = item.getClass();
+                if (elementType != Double.class && elementType != Long.class && elementType != Integer.class
+                    && elementType != Float.class && elementType != String.class) {
+                    return null;
+                }
+            } else if (item.getClass() != elementType) {
+                return null;
+            }
+        }
+        return elementType;
+    }
+
     /**
      * Notice: when serialization a map, the stream out map with the stream in map maybe have the
      * different key-value orders, they will maybe have different stream order.
@@ -522,27 +781,44 @@ public abstract class StreamOutput extends OutputStream {
             writeByte((byte) -1);
             return;
         }
-        final Class type;
-        if (value instanceof List) {
-            type = List.class;
-        } else if (value instanceof Object[]) {
-            type = Object[].class;
-        } else if (value instanceof Map) {
-            type = Map.class;
-        } else {
-            type = value.getClass();
-        }
-        final Writer writer = WRITERS.get(type);
+        final Writer<Object> writer = writerCache.get(value.getClass());
         if (writer != null) {
             writer.write(this, value);
         } else {
-            throw new IOException("can not write type [" + type + "]");
+            throw new IOException("can not write type [" + value.getClass() + "]");
         }
     }
 
     public void writeIntArray(int[] values) throws IOException {
-        writeVInt(values.length);
-        for (int value : values) {
+        writeIntArray(values, 0, values.length);
+    }
+
+    /**
+     * Writes {@code values[offset, offset + length)} the same way as {@link #writeIntArray(int[])}.
+     */
+    public void writeIntArray(int[] values, int offset, int length) throws IOException {
+        writeVInt(length);
+        final byte[] buffer = primitiveArrayBuffer((long) length * Integer.BYTES);
+        final int chunkSize = buffer.length / Integer.BYTES;
+        for (int i = 0; i < length; i += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - i);
+            ByteUtils.writeIntsBE(values, offset + i, chunkLength, buffer, 0);
+            writeBytes(buffer, 0, chunkLength * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Writes a list of {@code int}s in the layout of {@link #writeIntArray(int[])}. A {@link IntList} is
+     * written straight from its backing array, other lists are unboxed one element at a time.
+     */
+    public void writeIntList(List<Integer> list) throws IOException {
+        if (list instanceof IntList) {
+            final IntList ints = (IntList) list;
+            writeIntArray(ints.array(), ints.offset(), ints.size());
+            return;
+        }
+        writeVInt(list.size());
+        for (Integer value : list) {
             writeInt(value);
         }
     }
@@ -555,8 +831,39 @@ public abstract class StreamOutput extends OutputStream {
     }
 
     public void writeLongArray(long[] values) throws IOException {
-        writeVInt(values.length);
-        for (long value : values) {
+        writeLongArray(values, 0, values.length);
+    }
+
+    /**
+     * Writes {@code values[offset, offset + length)} the same way as {@link #writeLongArray(long[])}.
+     */
+    public void writeLongArray(long[] values, int offset, int length) throws IOException {
+        writeVInt(length);
+        writeLongs(values, offset, length);
+    }
+
+    private void writeLongs(long[] values, int offset, int length) throws IOException {
+        final byte[] buffer = primitiveArrayBuffer((long) length * Long.BYTES);
+        final int chunkSize = buffer.length / Long.BYTES;
+        for (int i = 0; i < length; i += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - i);
+            ByteUtils.writeLongsBE(values, offset + i, chunkLength, buffer, 0);
+            writeBytes(buffer, 0, chunkLength * Long.BYTES);
+        }
+    }
+
+    /**
+     * Writes a list of {@code long}s in the layout of {@link #writeLongArray(long[])}. A {@link LongList} is
+     * written straight from its backing array, other lists are unboxed one element at a time.
+     */
+    public void writeLongList(List<Long> list) throws IOException {
+        if (list instanceof LongList) {
+            final LongList longs = (LongList) list;
+            writeLongArray(longs.array(), longs.offset(), longs.size());
+            return;
+        }
+        writeVInt(list.size());
+        for (Long value : list) {
             writeLong(value);
         }
     }
@@ -569,19 +876,393 @@ public abstract class StreamOutput extends OutputStream {
     }
 
     public void writeFloatArray(float[] values) throws IOException {
-        writeVInt(values.length);
-        for (float value : values) {
+        writeFloatArray(values, 0, values.length);
+    }
+
+    /**
+     * Writes {@code values[offset, offset + length)} the same way as {@link #writeFloatArray(float[])}.
+     */
+    public void writeFloatArray(float[] values, int offset, int length) throws IOException {
+        writeVInt(length);
+        final byte[] buffer = primitiveArrayBuffer((long) length * Float.BYTES);
+        final int chunkSize = buffer.length / Float.BYTES;
+        for (int i = 0; i < length; i += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - i);
+            ByteUtils.writeFloatsBE(values, offset + i, chunkLength, buffer, 0);
+            writeBytes(buffer, 0, chunkLength * Float.BYTES);
+        }
+    }
+
+    /**
+     * Writes a list of {@code float}s in the layout of {@link #writeFloatArray(float[])}. A {@link FloatList} is
+     * written straight from its backing array, other lists are unboxed one element at a time.
+     */
+    public void writeFloatList(List<Float> list) throws IOException {
+        if (list instanceof FloatList) {
+            final FloatList floats = (FloatList) list;
+            writeFloatArray(floats.array(), floats.offset(), floats.size());
+            return;
+        }
+        writeVInt(list.size());
+        for (Float value : list) {
             writeFloat(value);
         }
     }
 
     public void writeDoubleArray(double[] values) throws IOException {
+        writeDoubleArray(values, 0, values.length);
+    }
+
+    /**
+     * Writes {@code values[offset, offset + length)} the same way as {@link #writeDoubleArray(double[])}.
+     */
+    public void writeDoubleArray(double[] values, int offset, int length) throws IOException {
+        writeVInt(length);
+        final byte[] buffer = primitiveArrayBuffer((long) length * Double.BYTES);
+        final int chunkSize = buffer.length / Double.BYTES;
+        for (int i = 0; i < length; i += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, length - i);
+            ByteUtils.writeDoublesBE(values, offset + i, chunkLength, buffer, 0);
+            writeBytes(buffer, 0, chunkLength * Double.BYTES);
+        }
+    }
+
+    /**
+     * Writes a list of {@code double}s in the layout of {@link #writeDoubleArray(double[])}. A {@link DoubleList} is
+     * written straight from its backing array, other lists are unboxed one element at a time.
+     */
+    public void writeDoubleList(List<Double> list) throws IOException {
+        if (list instanceof DoubleList) {
+            final DoubleList doubles = (DoubleList) list;
+            writeDoubleArray(doubles.array(), doubles.offset(), doubles.size());
+            return;
+        }
+        writeVInt(list.size());
+        for (Double value : list) {
+            writeDouble(value);
+        }
+    }
+
+    /**
+     * Writes an int array in blocks of 128 values, each value as its difference to the minimum of its block, bit packed on
+     * as many bits as the largest difference needs. Ids and other values that are close to their neighbours take a fraction
+     * of what {@link #writeVIntArray(int[])} writes, and decode without a branch per byte. Read with
+     * {@link StreamInput#readPackedIntArray()}.
+     */
+    public void writePackedIntArray(int[] values) throws IOException {
         writeVInt(values.length);
+        final long[] deltas = packingBuffers().values;
+        for (int start = 0; start < values.length; start += BlockPacking.BLOCK_SIZE) {
+            final int count = Math.min(BlockPacking.BLOCK_SIZE, values.length - start);
+            int min = values[start];
+            for (int i = 1; i < count; i++) {
+                min = Math.min(min, values[start + i]);
+            }
+            for (int i = 0; i < count; i++) {
+                deltas[i] = (long) values[start + i] - min;
+            }
+            writePackedBlock(min, deltas, count);
+        }
+    }
+
+    /**
+     * Writes a long array in blocks of 128 values, the same way as {@link #writePackedIntArray(int[])}. Read with
+     * {@link StreamInput#readPackedLongArray()}.
+     */
+    public void writePackedLongArray(long[] values) throws IOException {
+        writeVInt(values.length);
+        final long[] deltas = packingBuffers().values;
+        for (int start = 0; start < values.length; start += BlockPacking.BLOCK_SIZE) {
+            final int count = Math.min(BlockPacking.BLOCK_SIZE, values.length - start);
+            long min = values[start];
+            for (int i = 1; i < count; i++) {
+                min = Math.min(min, values[start + i]);
+            }
+            for (int i = 0; i < count; i++) {
+                // the difference may overflow, as an unsigned number it is still right
+                deltas[i] = values[start + i] - min;
+            }
+            writePackedBlock(min, deltas, count);
+        }
+    }
+
+    /**
+     * Writes an int array as its first value followed by the zig-zag encoded difference of every value to the previous one,
+     * all as vints. Sorted ids and other series whose neighbours are close take a byte or two per value. Read with
+     * {@link StreamInput#readDeltaIntArray()}.
+     */
+    public void writeDeltaIntArray(int[] values) throws IOException {
+        writeVInt(values.length);
+        // the vints are encoded in bulk, a chunk is flushed once it may not have room for another one
+        final byte[] buffer = primitiveArrayBuffer(5L * Math.max(values.length, 1));
+        int offset = 0;
+        int previous = 0;
+        for (int value : values) {
+            if (offset > buffer.length - 5) {
+                writeBytes(buffer, 0, offset);
+                offset = 0;
+            }
+            // the difference may overflow, adding it back on read overflows the same way
+            offset = ByteUtils.writeVInt(BitUtil.zigZagEncode(value - previous), buffer, offset);
+            previous = value;
+        }
+        writeBytes(buffer, 0, offset);
+    }
+
+    /**
+     * Writes a long array as its first value followed by the zig-zag encoded difference of every value to the previous one,
+     * all as vlongs. Read with {@link StreamInput#readDeltaLongArray()}.
+     */
+    public void writeDeltaLongArray(long[] values) throws IOException {
+        writeVInt(values.length);
+        final byte[] buffer = primitiveArrayBuffer(10L * Math.max(values.length, 1));
+        int offset = 0;
+        long previous = 0;
+        for (long value : values) {
+            if (offset > buffer.length - 10) {
+                writeBytes(buffer, 0, offset);
+                offset = 0;
+            }
+            offset = ByteUtils.writeVLong(BitUtil.zigZagEncode(value - previous), buffer, offset);
+            previous = value;
+        }
+        writeBytes(buffer, 0, offset);
+    }
+
+    /**
+     * Writes an int array as its first value followed by the differences between neighbouring values, packed in blocks the
+     * same way as {@link #writePackedIntArray(int[])}. Differences that stay within a small range, like the gaps between
+     * timestamps taken at a regular interval, take a few bits each. Read with {@link StreamInput#readPackedDeltaIntArray()}.
+     */
+    public void writePackedDeltaIntArray(int[] values) throws IOException {
+        writeVInt(values.length);
+        if (values.length == 0) {
+            return;
+        }
+        writeZLong(values[0]);
+        final long[] deltas = packingBuffers().values;
+        for (int start = 1; start < values.length; start += BlockPacking.BLOCK_SIZE) {
+            final int count = Math.min(BlockPacking.BLOCK_SIZE, values.length - start);
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                deltas[i] = (long) values[start + i] - values[start + i - 1];
+                min = Math.min(min, deltas[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                deltas[i] -= min;
+            }
+            writePackedBlock(min, deltas, count);
+        }
+    }
+
+    /**
+     * Writes a long array as its first value followed by the differences between neighbouring values, packed in blocks the
+     * same way as {@link #writePackedLongArray(long[])}. Read with {@link StreamInput#readPackedDeltaLongArray()}.
+     */
+    public void writePackedDeltaLongArray(long[] values) throws IOException {
+        writeVInt(values.length);
+        if (values.length == 0) {
+            return;
+        }
+        writeZLong(values[0]);
+        final long[] deltas = packingBuffers().values;
+        for (int start = 1; start < values.length; start += BlockPacking.BLOCK_SIZE) {
+            final int count = Math.min(BlockPacking.BLOCK_SIZE, values.length - start);
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                // both the difference and the difference to the minimum may overflow, the sums on read wrap back
+                deltas[i] = values[start + i] - values[start + i - 1];
+                min = Math.min(min, deltas[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                deltas[i] -= min;
+            }
+            writePackedBlock(min, deltas, count);
+        }
+    }
+
+    /**
+     * Writes a double array compressed by xor-ing the bits of every value with the bits of the previous one, see
+     * {@link XorCompression}. A value that did not change takes a single bit and one that changed a little takes its few
+     * meaningful bits, while random values cost slightly more than {@link #writeDoubleArray(double[])}. The values round trip
+     * exactly. Read with {@link StreamInput#readCompressedDoubleArray()}.
+     */
+    public void writeCompressedDoubleArray(double[] values) throws IOException {
+        writeVInt(values.length);
+        final XorCompression.Encoder encoder = new XorCompression.Encoder(this, XorCompression.DOUBLE_BITS);
         for (double value : values) {
-            writeDouble(value);
+            encoder.add(Double.doubleToRawLongBits(value));
+        }
+        encoder.finish();
+    }
+
+    /**
+     * Writes a float array the same way as {@link #writeCompressedDoubleArray(double[])}. Read with
+     * {@link StreamInput#readCompressedFloatArray()}.
+     */
+    public void writeCompressedFloatArray(float[] values) throws IOException {
+        writeVInt(values.length);
+        final XorCompression.Encoder encoder = new XorCompression.Encoder(this, XorCompression.FLOAT_BITS);
+        for (float value : values) {
+            encoder.add(Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+        }
+        encoder.finish();
+    }
+
+    /**
+     * Writes a float array as half floats, two bytes per value, see {@link HalfFloat}. This is lossy: values keep about three
+     * significant decimal digits, which is usually enough for embeddings and other feature vectors. Read with
+     * {@link StreamInput#readHalfFloatArray()} or {@link StreamInput#readHalfFloatDoubleArray()}.
+     */
+    public void writeHalfFloatArray(float[] values) throws IOException {
+        writeVInt(values.length);
+        final byte[] buffer = primitiveArrayBuffer((long) values.length * Short.BYTES);
+        final int chunkSize = buffer.length / Short.BYTES;
+        for (int offset = 0; offset < values.length; offset += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, values.length - offset);
+            for (int i = 0; i < chunkLength; i++) {
+                final short half = HalfFloat.fromFloat(values[offset + i]);
+                buffer[2 * i] = (byte) (half >> 8);
+                buffer[2 * i + 1] = (byte) half;
+            }
+            writeBytes(buffer, 0, chunkLength * Short.BYTES);
+        }
+    }
+
+    /**
+     * Writes a double array as half floats, the same way as {@link #writeHalfFloatArray(float[])}.
+     */
+    public void writeHalfFloatArray(double[] values) throws IOException {
+        writeVInt(values.length);
+        final byte[] buffer = primitiveArrayBuffer((long) values.length * Short.BYTES);
+        final int chunkSize = buffer.length / Short.BYTES;
+        for (int offset = 0; offset < values.length; offset += chunkSize) {
+            final int chunkLength = Math.min(chunkSize, values.length - offset);
+            for (int i = 0; i < chunkLength; i++) {
+                final short half = HalfFloat.fromDouble(values[offset + i]);
+                buffer[2 * i] = (byte) (half >> 8);
+                buffer[2 * i + 1] = (byte) half;
+            }
+            writeBytes(buffer, 0, chunkLength * Short.BYTES);
         }
     }
 
+    /**
+     * Writes a float array quantized on one byte per value: the minimum and the step between two quantized values as floats,
+     * then every value as the number of steps it is above the minimum, between 0 and 255, rounded to the nearest. This is
+     * lossy, a value read back is within half a step of the one written. The values must be finite. Read with
+     * {@link StreamInput#readByteQuantizedArray()} or {@link StreamInput#readByteQuantizedDoubleArray()}.
+     */
+    public void writeByteQuantizedArray(float[] values) throws IOException {
+        writeVInt(values.length);
+        if (values.length == 0) {
+            return;
+        }
+        float min = values[0];
+        float max = values[0];
+        for (float value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        final double inverseStep = writeQuantizationHeader(min, max);
+        final byte[] buffer = primitiveArrayBuffer(values.length);
+        for (int offset = 0; offset < values.length; offset += buffer.length) {
+            final int chunkLength = Math.min(buffer.length, values.length - offset);
+            for (int i = 0; i < chunkLength; i++) {
+                buffer[i] = quantize((values[offset + i] - min) * inverseStep);
+            }
+            writeBytes(buffer, 0, chunkLength);
+        }
+    }
+
+    /**
+     * Writes a double array quantized on one byte per value, the same way as {@link #writeByteQuantizedArray(float[])}.
+     * The values must fit in a float.
+     */
+    public void writeByteQuantizedArray(double[] values) throws IOException {
+        writeVInt(values.length);
+        if (values.length == 0) {
+            return;
+        }
+        double min = values[0];
+        double max = values[0];
+        for (double value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        // the steps are counted from the minimum that is written, not from the exact one
+        final float writtenMin = (float) min;
+        final double inverseStep = writeQuantizationHeader(writtenMin, (float) max);
+        final byte[] buffer = primitiveArrayBuffer(values.length);
+        for (int offset = 0; offset < values.length; offset += buffer.length) {
+            final int chunkLength = Math.min(buffer.length, values.length - offset);
+            for (int i = 0; i < chunkLength; i++) {
+                buffer[i] = quantize((values[offset + i] - writtenMin) * inverseStep);
+            }
+            writeBytes(buffer, 0, chunkLength);
+        }
+    }
+
+    /**
+     * Writes the minimum and the step of a byte quantized array and returns the inverse of the step.
+     */
+    private double writeQuantizationHeader(float min, float max) throws IOException {
+        final float step = (max - min) / 255;
+        if (Float.isFinite(min) == false || Float.isFinite(max) == false || Float.isFinite(step) == false) {
+            throw new IllegalArgumentException("Can't quantize values between [" + min + "] and [" + max + "]");
+        }
+        writeFloat(min);
+        writeFloat(step);
+        return step == 0 ? 0 : 1 / (double) step;
+    }
+
+    private static byte quantize(double steps) {
+        // the written step is rounded, the largest value can end up slightly above 255 steps
+        return (byte) Math.min(255, Math.max(0, Math.round(steps)));
+    }
+
+    /**
+     * Writes a block: the number of bits per value, the minimum as a zlong and the packed differences to it.
+     */
+    private void writePackedBlock(long min, long[] deltas, int count) throws IOException {
+        long or = 0;
+        for (int i = 0; i < count; i++) {
+            or |= deltas[i];
+        }
+        final int bitsPerValue = BlockPacking.bitsRequired(or);
+        writeByte((byte) bitsPerValue);
+        writeZLong(min);
+        if (bitsPerValue > 0) {
+            final long[] words = packingBuffers().words;
+            writeLongs(words, 0, BlockPacking.pack(deltas, count, bitsPerValue, words));
+        }
+    }
+
+    private BlockPacking.Buffers packingBuffers;
+
+    private BlockPacking.Buffers packingBuffers() {
+        if (packingBuffers == null) {
+            packingBuffers = new BlockPacking.Buffers();
+        }
+        return packingBuffers;
+    }
+
+    private static final int PRIMITIVE_ARRAY_BUFFER_SIZE = 8 * 1024;
+
+    private byte[] primitiveArrayBuffer = new byte[0];
+
+    /**
+     * Returns the scratch buffer used to encode primitive arrays in bulk, large enough for {@code size} bytes or
+     * {@link #PRIMITIVE_ARRAY_BUFFER_SIZE} bytes, whichever is smaller. Larger arrays are encoded chunk by chunk.
+     */
+    private byte[] primitiveArrayBuffer(long size) {
+        final int bufferSize = (int) Math.min(size, PRIMITIVE_ARRAY_BUFFER_SIZE);
+        if (primitiveArrayBuffer.length < bufferSize) {
+            primitiveArrayBuffer = new byte[Math.max(bufferSize, Long.BYTES)];
+        }
+        return primitiveArrayBuffer;
+    }
+
     /**
      * Writes the specified array to the stream using the specified {@link Writer} for each element in the array. This method can be seen as
      * writer version of {@link StreamInput#readArray(Writeable.Reader, IntFunction)}. The length of array encoded as a variable-length
@@ -650,6 +1331,59 @@ public abstract class StreamOutput extends OutputStream {
         }
     }
 
+    @Nullable
+    private NamedWriteableRegistry namedWriteableRegistry;
+
+    /**
+     * Sets the registry {@link #writeNamedWriteable(NamedWriteable)} looks up the ids of named writeables in. The stream
+     * they are read from needs the same registry.
+     */
+    public void setNamedWriteableRegistry(@Nullable NamedWriteableRegistry namedWriteableRegistry) {
+        this.namedWriteableRegistry = namedWriteableRegistry;
+    }
+
+    @Nullable
+    public NamedWriteableRegistry getNamedWriteableRegistry() {
+        return namedWriteableRegistry;
+    }
+
+    /**
+     * Writes a {@link NamedWriteable} to the current stream, by first writing the id of its registry entry and then the
+     * object itself. Read with {@link StreamInput#readNamedWriteable(Class)}.
+     *
+     * @throws IllegalStateException if no {@link NamedWriteableRegistry} is set
+     */
+    public void writeNamedWriteable(NamedWriteable namedWriteable) throws IOException {
+        if (namedWriteableRegistry == null) {
+            throw new IllegalStateException("can't write named writeable [" + namedWriteable.getWriteableName()
+                + "] without a NamedWriteableRegistry");
+        }
+        writeVInt(namedWriteableRegistry.getId(namedWriteable));
+        namedWriteable.writeTo(this);
+    }
+
+    /**
+     * Write an optional {@link NamedWriteable} to the stream.
+     */
+    public void writeOptionalNamedWriteable(@Nullable NamedWriteable namedWriteable) throws IOException {
+        if (namedWriteable == null) {
+            writeBoolean(false);
+        } else {
+            writeBoolean(true);
+            writeNamedWriteable(namedWriteable);
+        }
+    }
+
+    /**
+     * Writes a list of {@link NamedWriteable} objects, which may be of different classes.
+     */
+    public void writeNamedWriteableList(List<? extends NamedWriteable> list) throws IOException {
+        writeVInt(list.size());
+        for (NamedWriteable obj : list) {
+            writeNamedWriteable(obj);
+        }
+    }
+
     /**
      * Writes a list of {@link Streamable} objects
      */
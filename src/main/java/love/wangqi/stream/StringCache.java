@@ -0,0 +1,15 @@
+package love.wangqi.stream;
+
+/**
+ * Deduplicates the strings a {@link StreamInput} decodes with {@link StreamInput#readCachedString()}. The chars are handed
+ * over in a scratch buffer, so an implementation that finds an equal string it returned before can return it again without
+ * allocating anything.
+ */
+public interface StringCache {
+
+    /**
+     * Returns a string equal to {@code chars[offset, offset + length)}. The array is a scratch buffer that is overwritten
+     * later, implementations must not keep a reference to it.
+     */
+    String get(char[] chars, int offset, int length);
+}
@@ -0,0 +1,257 @@
+package love.wangqi.stream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes and decodes the string format of {@link StreamOutput#writeString(CharSequence)}: every UTF-16 char is encoded on
+ * one, two or three bytes the way UTF-8 encodes code points up to {@code 0xFFFF}. Shared by the stream implementations that
+ * have their bytes at hand, so that they all copy runs of ASCII characters without going through the switch.
+ */
+final class Utf8Codec {
+
+    /**
+     * The maximum number of bytes a single char is encoded on.
+     */
+    static final int MAX_BYTES_PER_CHAR = 3;
+
+    private Utf8Codec() {
+    }
+
+    /**
+     * Returns the number of leading bytes in {@code bytes[offset, offset + length)} that encode ASCII characters. Strings are
+     * mostly ASCII, so the leading ASCII run is handled one byte per char before falling back to the general decoding.
+     */
+    static int asciiPrefix(byte[] bytes, int offset, int length) {
+        int i = 0;
+        while (i < length && bytes[offset + i] >= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of leading bytes in {@code buffer[index, index + length)} that encode ASCII characters.
+     */
+    static int asciiPrefix(ByteBuffer buffer, int index, int length) {
+        if (buffer.hasArray()) {
+            return asciiPrefix(buffer.array(), buffer.arrayOffset() + index, length);
+        }
+        int i = 0;
+        while (i < length && buffer.get(index + i) >= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Decodes {@code charCount} chars from {@code bytes}, starting at {@code offset}, into {@code chars}.
+     *
+     * @return the offset of the first byte after the string
+     * @throws EOFException if the string does not end before {@code limit}
+     */
+    static int decode(byte[] bytes, int offset, int limit, char[] chars, int charCount) throws IOException {
+        int i = 0;
+        final int asciiEnd = Math.min(charCount, limit - offset);
+        while (i < asciiEnd && bytes[offset] >= 0) {
+            chars[i++] = (char) bytes[offset++];
+        }
+        for (; i < charCount; i++) {
+            if (offset >= limit) {
+                throw eof(charCount);
+            }
+            final int c = bytes[offset++] & 0xff;
+            switch (c >> 4) {
+                case 0:
+                case 1:
+                case 2:
+                case 3:
+                case 4:
+                case 5:
+                case 6:
+                case 7:
+                    chars[i] = (char) c;
+                    break;
+                case 12:
+                case 13:
+                    if (offset >= limit) {
+                        throw eof(charCount);
+                    }
+                    chars[i] = ((char) ((c & 0x1F) << 6 | bytes[offset++] & 0x3F));
+                    break;
+                case 14:
+                    if (offset + 1 >= limit) {
+                        throw eof(charCount);
+                    }
+                    chars[i] = ((char) ((c & 0x0F) << 12 | (bytes[offset++] & 0x3F) << 6 | (bytes[offset++] & 0x3F) << 0));
+                    break;
+                default:
+                    throw invalid(c);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Decodes {@code charCount} chars from {@code buffer}, starting at the absolute {@code index}, into {@code chars}. The
+     * position of the buffer is not changed.
+     *
+     * @return the index of the first byte after the string
+     * @throws EOFException if the string does not end before {@code limit}
+     */
+    static int decode(ByteBuffer buffer, int index, int limit, char[] chars, int charCount) throws IOException {
+        if (buffer.hasArray()) {
+            final int arrayOffset = buffer.arrayOffset();
+            return decode(buffer.array(), arrayOffset + index, arrayOffset + limit, chars, charCount) - arrayOffset;
+        }
+        int i = 0;
+        final int asciiEnd = Math.min(charCount, limit - index);
+        byte b;
+        while (i < asciiEnd && (b = buffer.get(index)) >= 0) {
+            chars[i++] = (char) b;
+            index++;
+        }
+        for (; i < charCount; i++) {
+            if (index >= limit) {
+                throw eof(charCount);
+            }
+            final int c = buffer.get(index++) & 0xff;
+            switch (c >> 4) {
+                case 0:
+                case 1:
+                case 2:
+                case 3:
+                case 4:
+                case 5:
+                case 6:
+                case 7:
+                    chars[i] = (char) c;
+                    break;
+                case 12:
+                case 13:
+                    if (index >= limit) {
+                        throw eof(charCount);
+                    }
+                    chars[i] = ((char) ((c & 0x1F) << 6 | buffer.get(index++) & 0x3F));
+                    break;
+                case 14:
+                    if (index + 1 >= limit) {
+                        throw eof(charCount);
+                    }
+                    chars[i] = ((char) ((c & 0x0F) << 12 | (buffer.get(index++) & 0x3F) << 6 | (buffer.get(index++) & 0x3F) << 0));
+                    break;
+                default:
+                    throw invalid(c);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Skips {@code charCount} chars of {@code bytes}, starting at {@code offset}, looking only at the leading byte of every
+     * char.
+     *
+     * @return the offset of the first byte after the string
+     * @throws EOFException if the string does not end before {@code limit}
+     */
+    static int skip(byte[] bytes, int offset, int limit, int charCount) throws IOException {
+        int i = asciiPrefix(bytes, offset, Math.min(charCount, limit - offset));
+        offset += i;
+        for (; i < charCount; i++) {
+            if (offset >= limit) {
+                throw eof(charCount);
+            }
+            offset += encodedLength(bytes[offset] & 0xff);
+        }
+        if (offset > limit) {
+            throw eof(charCount);
+        }
+        return offset;
+    }
+
+    /**
+     * Skips {@code charCount} chars of {@code buffer}, starting at the absolute {@code index}. The position of the buffer is
+     * not changed.
+     *
+     * @return the index of the first byte after the string
+     * @throws EOFException if the string does not end before {@code limit}
+     */
+    static int skip(ByteBuffer buffer, int index, int limit, int charCount) throws IOException {
+        if (buffer.hasArray()) {
+            final int arrayOffset = buffer.arrayOffset();
+            return skip(buffer.array(), arrayOffset + index, arrayOffset + limit, charCount) - arrayOffset;
+        }
+        for (int i = 0; i < charCount; i++) {
+            if (index >= limit) {
+                throw eof(charCount);
+            }
+            index += encodedLength(buffer.get(index) & 0xff);
+        }
+        if (index > limit) {
+            throw eof(charCount);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of bytes of the char whose encoding starts with the given byte.
+     */
+    static int encodedLength(int c) throws IOException {
+        switch (c >> 4) {
+            case 0:
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+            case 5:
+            case 6:
+            case 7:
+                return 1;
+            case 12:
+            case 13:
+                return 2;
+            case 14:
+                return 3;
+            default:
+                throw invalid(c);
+        }
+    }
+
+    /**
+     * Encodes the chars {@code [from, to)} of {@code str} into {@code bytes}, starting at {@code offset}. The caller makes sure
+     * there is room for {@link #MAX_BYTES_PER_CHAR} bytes per char.
+     *
+     * @return the offset of the first byte after the encoded chars
+     */
+    static int encode(CharSequence str, int from, int to, byte[] bytes, int offset) {
+        int i = from;
+        char c;
+        while (i < to && (c = str.charAt(i)) <= 0x007F) {
+            bytes[offset++] = (byte) c;
+            i++;
+        }
+        for (; i < to; i++) {
+            c = str.charAt(i);
+            if (c <= 0x007F) {
+                bytes[offset++] = ((byte) c);
+            } else if (c > 0x07FF) {
+                bytes[offset++] = ((byte) (0xE0 | c >> 12 & 0x0F));
+                bytes[offset++] = ((byte) (0x80 | c >> 6 & 0x3F));
+                bytes[offset++] = ((byte) (0x80 | c >> 0 & 0x3F));
+            } else {
+                bytes[offset++] = ((byte) (0xC0 | c >> 6 & 0x1F));
+                bytes[offset++] = ((byte) (0x80 | c >> 0 & 0x3F));
+            }
+        }
+        return offset;
+    }
+
+    static IOException invalid(int c) {
+        return new IOException("Invalid string; unexpected character: " + c + " hex: " + Integer.toHexString(c));
+    }
+
+    private static EOFException eof(int charCount) {
+        return new EOFException("tried to read a string of " + charCount + " chars past the end of the stream");
+    }
+}
@@ -71,4 +71,24 @@ public interface Writeable {
 
     }
 
+    /**
+     * Reference to a method that advances a stream past some value without reading it, the counterpart of a {@link Reader} for
+     * code that is not interested in the value. By convention this is a method from {@link StreamInput} itself (e.g.,
+     * {@link StreamInput#skipString}):
+     * <pre><code>
+     * in.skipArray(StreamInput::skipString);
+     * </code></pre>
+     */
+    @FunctionalInterface
+    interface Skipper {
+
+        /**
+         * Skip a value of the stream.
+         *
+         * @param in Input to skip the value of
+         */
+        void skip(StreamInput in) throws IOException;
+
+    }
+
 }
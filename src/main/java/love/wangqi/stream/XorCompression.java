@@ -0,0 +1,181 @@
+package love.wangqi.stream;
+
+import java.io.IOException;
+
+/**
+ * The bit stream written by {@link StreamOutput#writeCompressedDoubleArray(double[])} and
+ * {@link StreamOutput#writeCompressedFloatArray(float[])}, in the style of the Gorilla time series compression. The first
+ * value is written on all of its bits, every following one as the xor of its bits with the bits of the previous value:
+ * <ul>
+ * <li>{@code 0} when the value did not change,</li>
+ * <li>{@code 10} and the meaningful bits of the xor when they fit in the window of leading and trailing zeros of the
+ * previous xor,</li>
+ * <li>{@code 11}, the number of leading zeros on 5 bits, the number of meaningful bits minus one and the meaningful bits
+ * otherwise.</li>
+ * </ul>
+ * The raw bits of the values are used, so every value including the NaNs round trips exactly. Bits are written from the
+ * most significant one and the last byte is padded with zeros.
+ */
+final class XorCompression {
+
+    static final int DOUBLE_BITS = Double.SIZE;
+    static final int FLOAT_BITS = Float.SIZE;
+
+    private static final int MAX_LEADING_ZEROS = 31;
+
+    private XorCompression() {
+    }
+
+    /**
+     * Returns the number of bits the number of meaningful bits minus one is written on.
+     */
+    private static int lengthBits(int width) {
+        return width == DOUBLE_BITS ? 6 : 5;
+    }
+
+    static final class Encoder {
+        private final StreamOutput out;
+        private final int width;
+        private final int lengthBits;
+        private long bits;
+        private int pending;
+        private boolean first = true;
+        private long previous;
+        private int previousLeading = -1;
+        private int previousTrailing;
+
+        Encoder(StreamOutput out, int width) {
+            this.out = out;
+            this.width = width;
+            this.lengthBits = lengthBits(width);
+        }
+
+        /**
+         * Adds a value, given as its {@code width} raw bits.
+         */
+        void add(long value) throws IOException {
+            if (first) {
+                first = false;
+                previous = value;
+                writeLongBits(value, width);
+                return;
+            }
+            final long xor = value ^ previous;
+            previous = value;
+            if (xor == 0) {
+                writeBits(0, 1);
+                return;
+            }
+            final int leading = Math.min(Long.numberOfLeadingZeros(xor) - (Long.SIZE - width), MAX_LEADING_ZEROS);
+            final int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                writeBits(0b10, 2);
+                writeLongBits(xor >>> previousTrailing, width - previousLeading - previousTrailing);
+            } else {
+                final int meaningful = width - leading - trailing;
+                writeBits((((0b11L << 5) | leading) << lengthBits) | (meaningful - 1), 2 + 5 + lengthBits);
+                writeLongBits(xor >>> trailing, meaningful);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+
+        /**
+         * Writes the last, partial byte.
+         */
+        void finish() throws IOException {
+            if (pending > 0) {
+                out.writeByte((byte) (bits << (Byte.SIZE - pending)));
+                pending = 0;
+            }
+        }
+
+        private void writeLongBits(long value, int count) throws IOException {
+            if (count > Integer.SIZE) {
+                writeBits(value >>> Integer.SIZE, count - Integer.SIZE);
+                writeBits(value & 0xFFFFFFFFL, Integer.SIZE);
+            } else {
+                writeBits(value, count);
+            }
+        }
+
+        /**
+         * Writes the {@code count} lowest bits of {@code value}, at most 32, whose higher bits must be zeros.
+         */
+        private void writeBits(long value, int count) throws IOException {
+            bits = (bits << count) | value;
+            pending += count;
+            while (pending >= Byte.SIZE) {
+                pending -= Byte.SIZE;
+                out.writeByte((byte) (bits >>> pending));
+            }
+        }
+    }
+
+    static final class Decoder {
+        private final StreamInput in;
+        private final int width;
+        private final int lengthBits;
+        private long bits;
+        private int available;
+        private boolean first = true;
+        private long previous;
+        private int previousLeading;
+        private int previousTrailing;
+
+        Decoder(StreamInput in, int width) {
+            this.in = in;
+            this.width = width;
+            this.lengthBits = lengthBits(width);
+        }
+
+        /**
+         * Returns the raw bits of the next value.
+         */
+        long next() throws IOException {
+            if (first) {
+                first = false;
+                previous = readLongBits(width);
+                return previous;
+            }
+            if (readBits(1) == 0) {
+                return previous;
+            }
+            if (readBits(1) == 0) {
+                previous ^= readLongBits(width - previousLeading - previousTrailing) << previousTrailing;
+                return previous;
+            }
+            final int header = (int) readBits(5 + lengthBits);
+            previousLeading = header >>> lengthBits;
+            final int meaningful = (header & ((1 << lengthBits) - 1)) + 1;
+            previousTrailing = width - previousLeading - meaningful;
+            if (previousTrailing < 0) {
+                throw new IOException("Invalid compressed value of " + previousLeading + " leading zeros and "
+                    + meaningful + " meaningful bits");
+            }
+            previous ^= readLongBits(meaningful) << previousTrailing;
+            return previous;
+        }
+
+        private long readLongBits(int count) throws IOException {
+            if (count > Integer.SIZE) {
+                final long high = readBits(count - Integer.SIZE);
+                return (high << Integer.SIZE) | readBits(Integer.SIZE);
+            }
+            return readBits(count);
+        }
+
+        /**
+         * Reads {@code count} bits, at most 32. Bytes are only pulled from the stream when they are needed so that nothing
+         * after the last padded byte is consumed.
+         */
+        private long readBits(int count) throws IOException {
+            while (available < count) {
+                bits = (bits << Byte.SIZE) | (in.readByte() & 0xFF);
+                available += Byte.SIZE;
+            }
+            available -= count;
+            return (bits >>> available) & ((1L << count) - 1);
+        }
+    }
+}
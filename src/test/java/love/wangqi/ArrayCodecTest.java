@@ -0,0 +1,242 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.StreamOutput;
+import love.wangqi.stream.Writeable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trips every array codec over the same kinds of arrays through every input, and checks that each one shrinks the
+ * arrays it is meant for. The values a codec has to take special care of are tested in its own test.
+ */
+@RunWith(Parameterized.class)
+public class ArrayCodecTest {
+    private static final Random random = new Random();
+
+    interface Check<T> {
+        void check(T expected, T actual);
+    }
+
+    static final class Codec {
+        final Writeable writeArrays;
+        final StreamInputs.Check readArrays;
+        final Writeable writeCompressible;
+        final Writeable writeRaw;
+        final double maxRatio;
+
+        Codec(Writeable writeArrays, StreamInputs.Check readArrays, Writeable writeCompressible, Writeable writeRaw,
+              double maxRatio) {
+            this.writeArrays = writeArrays;
+            this.readArrays = readArrays;
+            this.writeCompressible = writeCompressible;
+            this.writeRaw = writeRaw;
+            this.maxRatio = maxRatio;
+        }
+    }
+
+    /**
+     * A codec that writes the {@code arrays} back to back, and writes {@code compressible} in less than {@code maxRatio}
+     * of the bytes {@code raw} takes for it.
+     */
+    private static <T> Object[] codec(String name, Writeable.Writer<T> writer, Writeable.Reader<T> reader, Check<T> check,
+                                      List<T> arrays, T compressible, Writeable.Writer<T> raw, double maxRatio) {
+        final Codec codec = new Codec(out -> {
+            for (T values : arrays) {
+                writer.write(out, values);
+            }
+        }, in -> {
+            for (T values : arrays) {
+                check.check(values, reader.read(in));
+            }
+        }, out -> writer.write(out, compressible), out -> raw.write(out, compressible), maxRatio);
+        return new Object[]{name, codec};
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> codecs() {
+        final Check<int[]> ints = (expected, actual) -> assertArrayEquals(expected, actual);
+        final Check<long[]> longs = (expected, actual) -> assertArrayEquals(expected, actual);
+        // compares the raw bits, so the payloads of the NaNs and the sign of the zeros are checked too
+        final Check<double[]> doubleBits = (expected, actual) -> {
+            assertEquals(expected.length, actual.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(actual[i]));
+            }
+        };
+        final Check<float[]> floatBits = (expected, actual) -> {
+            assertEquals(expected.length, actual.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(Float.floatToRawIntBits(expected[i]), Float.floatToRawIntBits(actual[i]));
+            }
+        };
+        final List<double[]> embeddings = embeddings();
+        final List<float[]> floatEmbeddings = new ArrayList<>();
+        for (double[] values : embeddings) {
+            floatEmbeddings.add(toFloats(values));
+        }
+        final double[] embedding = embedding(10000);
+
+        final List<Object[]> codecs = new ArrayList<>();
+        codecs.add(codec("packed ints", StreamOutput::writePackedIntArray, StreamInput::readPackedIntArray, ints,
+            intArrays(), sorted(10000, 100), StreamOutput::writeIntArray, 0.5));
+        codecs.add(codec("packed longs", StreamOutput::writePackedLongArray, StreamInput::readPackedLongArray, longs,
+            longArrays(), timestamps(10000, 0, 1000), StreamOutput::writeLongArray, 0.3));
+        codecs.add(codec("delta ints", StreamOutput::writeDeltaIntArray, StreamInput::readDeltaIntArray, ints,
+            intArrays(), sorted(10000, 20), StreamOutput::writeIntArray, 0.3));
+        codecs.add(codec("delta longs", StreamOutput::writeDeltaLongArray, StreamInput::readDeltaLongArray, longs,
+            longArrays(), timestamps(10000, 1000, 20), StreamOutput::writeLongArray, 0.3));
+        codecs.add(codec("packed delta ints", StreamOutput::writePackedDeltaIntArray, StreamInput::readPackedDeltaIntArray, ints,
+            intArrays(), sorted(10000, 20), StreamOutput::writeIntArray, 0.2));
+        codecs.add(codec("packed delta longs", StreamOutput::writePackedDeltaLongArray, StreamInput::readPackedDeltaLongArray,
+            longs, longArrays(), timestamps(10000, 1000, 20), StreamOutput::writeLongArray, 0.1));
+        codecs.add(codec("compressed doubles", StreamOutput::writeCompressedDoubleArray, StreamInput::readCompressedDoubleArray,
+            doubleBits, doubleArrays(), gauge(10000), StreamOutput::writeDoubleArray, 0.25));
+        codecs.add(codec("compressed floats", StreamOutput::writeCompressedFloatArray, StreamInput::readCompressedFloatArray,
+            floatBits, floatArrays(), toFloats(gauge(10000)), StreamOutput::writeFloatArray, 0.25));
+        codecs.add(codec("half floats", StreamOutput::writeHalfFloatArray, StreamInput::readHalfFloatArray,
+            (expected, actual) -> assertArrayEquals(expected, actual, 1e-3f), floatEmbeddings, toFloats(embedding),
+            StreamOutput::writeFloatArray, 0.51));
+        codecs.add(codec("half float doubles", StreamOutput::writeHalfFloatArray, StreamInput::readHalfFloatDoubleArray,
+            (expected, actual) -> assertArrayEquals(expected, actual, 1e-3), embeddings, embedding,
+            StreamOutput::writeDoubleArray, 0.26));
+        codecs.add(codec("byte quantized floats", StreamOutput::writeByteQuantizedArray, StreamInput::readByteQuantizedArray,
+            (expected, actual) -> assertArrayEquals(expected, actual, 1e-2f), floatEmbeddings, toFloats(embedding),
+            StreamOutput::writeFloatArray, 0.26));
+        codecs.add(codec("byte quantized doubles", StreamOutput::writeByteQuantizedArray,
+            StreamInput::readByteQuantizedDoubleArray, (expected, actual) -> assertArrayEquals(expected, actual, 1e-2),
+            embeddings, embedding, StreamOutput::writeDoubleArray, 0.13));
+        return codecs;
+    }
+
+    private final Codec codec;
+
+    public ArrayCodecTest(String name, Codec codec) {
+        this.codec = codec;
+    }
+
+    @Test
+    public void roundTripEveryInput() throws IOException {
+        StreamInputs.assertRoundTrip(codec.writeArrays, codec.readArrays);
+    }
+
+    @Test
+    public void smallerThanRawArray() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        codec.writeRaw.writeTo(out);
+        final int raw = out.size();
+        out.reset();
+        codec.writeCompressible.writeTo(out);
+        assertTrue(out.size() + " vs " + raw, out.size() < raw * codec.maxRatio);
+    }
+
+    private static int[] sorted(int count, int maxGap) {
+        int[] values = new int[count];
+        for (int i = 1; i < count; i++) {
+            values[i] = values[i - 1] + 1 + random.nextInt(maxGap);
+        }
+        return values;
+    }
+
+    private static long[] timestamps(int count, int interval, int jitter) {
+        long[] timestamps = new long[count];
+        timestamps[0] = 1577836800000L;
+        for (int i = 1; i < count; i++) {
+            timestamps[i] = timestamps[i - 1] + interval + random.nextInt(jitter);
+        }
+        return timestamps;
+    }
+
+    private static double[] gauge(int count) {
+        double[] values = new double[count];
+        values[0] = 42.5;
+        for (int i = 1; i < count; i++) {
+            values[i] = random.nextInt(4) == 0 ? values[i - 1] + (random.nextInt(11) - 5) * 0.25 : values[i - 1];
+        }
+        return values;
+    }
+
+    private static double[] embedding(int dimensions) {
+        double[] values = new double[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            values[i] = Math.max(-1, Math.min(1, random.nextGaussian() * 0.3));
+        }
+        return values;
+    }
+
+    private static float[] toFloats(double[] values) {
+        float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            floats[i] = (float) values[i];
+        }
+        return floats;
+    }
+
+    private static List<int[]> intArrays() {
+        int[] constant = new int[300];
+        Arrays.fill(constant, -7);
+        return Arrays.asList(
+            new int[0],
+            new int[]{42},
+            new int[]{1, 2},
+            sorted(1000, 20),
+            constant,
+            random.ints(129).toArray(),
+            random.ints(255, -100, 100).toArray());
+    }
+
+    private static List<long[]> longArrays() {
+        return Arrays.asList(
+            new long[0],
+            new long[]{42},
+            timestamps(129, 1000, 20),
+            timestamps(777, 0, 1000),
+            new long[128],
+            random.longs(500).toArray());
+    }
+
+    private static List<double[]> doubleArrays() {
+        double[] constant = new double[300];
+        Arrays.fill(constant, Math.PI);
+        return Arrays.asList(
+            new double[0],
+            new double[]{1.5},
+            constant,
+            gauge(1000),
+            random.doubles(1000).toArray(),
+            random.doubles(100).map(d -> d * 1e300).toArray());
+    }
+
+    private static List<float[]> floatArrays() {
+        float[] random = new float[1000];
+        for (int i = 0; i < random.length; i++) {
+            random[i] = ArrayCodecTest.random.nextFloat() * 2 - 1;
+        }
+        return Arrays.asList(
+            new float[0],
+            new float[]{1f},
+            toFloats(gauge(1000)),
+            random);
+    }
+
+    private static List<double[]> embeddings() {
+        // larger than the scratch buffers, so the arrays are written and read in several chunks
+        return Arrays.asList(
+            new double[0],
+            embedding(1),
+            embedding(300),
+            embedding(10000));
+    }
+}
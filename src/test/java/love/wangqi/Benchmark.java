@@ -0,0 +1,34 @@
+package love.wangqi;
+
+import java.io.IOException;
+
+/**
+ * Times tasks for the performance tests: every task is run {@code warmup} times so that it gets compiled, then
+ * {@code loop} times while measured, and the time it took is printed.
+ */
+class Benchmark {
+
+    interface Task {
+        void run() throws IOException;
+    }
+
+    private final int warmup;
+    private final int loop;
+
+    Benchmark(int warmup, int loop) {
+        this.warmup = warmup;
+        this.loop = loop;
+    }
+
+    void measure(String name, Task task) throws IOException {
+        for (int i = 0; i < warmup; i++) {
+            task.run();
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < loop; i++) {
+            task.run();
+        }
+        long end = System.currentTimeMillis();
+        System.out.println(name + " cost: " + (end - start));
+    }
+}
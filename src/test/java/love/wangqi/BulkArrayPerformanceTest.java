@@ -0,0 +1,62 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Compares the bulk primitive array codecs with encoding the same feature vector one element at a time.
+ */
+public class BulkArrayPerformanceTest {
+    Random random = new Random();
+    Benchmark benchmark = new Benchmark(10000, 10000);
+    int featureSize = 1024;
+    double[] feature;
+    byte[] bytes;
+
+    @Before
+    public void before() throws IOException {
+        feature = random.doubles(featureSize).toArray();
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeDoubleArray(feature);
+        bytes = out.copyBytes();
+    }
+
+    @Test
+    public void writeDoubleArray() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        benchmark.measure("per element write", () -> {
+            out.reset();
+            out.writeVInt(feature.length);
+            for (double value : feature) {
+                out.writeDouble(value);
+            }
+        });
+        benchmark.measure("bulk write", () -> {
+            out.reset();
+            out.writeDoubleArray(feature);
+        });
+        assertArrayEquals(bytes, out.copyBytes());
+    }
+
+    @Test
+    public void readDoubleArray() throws IOException {
+        double[][] values = new double[1][];
+        benchmark.measure("per element read", () -> {
+            StreamInput in = StreamInput.wrap(bytes);
+            values[0] = new double[in.readVInt()];
+            for (int j = 0; j < values[0].length; j++) {
+                values[0][j] = in.readDouble();
+            }
+        });
+        assertArrayEquals(feature, values[0], 0d);
+        benchmark.measure("bulk read", () -> values[0] = StreamInput.wrap(bytes).readDoubleArray());
+        assertArrayEquals(feature, values[0], 0d);
+    }
+}
@@ -0,0 +1,135 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.InputStreamStreamInput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ByteArrayStreamInputTest {
+
+    @Test
+    public void readPrimitives() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeShort((short) -2);
+        out.writeInt(-7);
+        out.writeLong(Long.MAX_VALUE);
+        out.writeVInt(Integer.MAX_VALUE);
+        out.writeVInt(-1);
+        out.writeVLong(Long.MAX_VALUE);
+        out.writeZLong(-123456789L);
+        out.writeString("ascii, ünïcödé and 中文");
+        out.writeDoubleArray(new double[]{1.5, -2.5});
+        out.writeVInt(1);
+
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        assertEquals(-2, in.readShort());
+        assertEquals(-7, in.readInt());
+        assertEquals(Long.MAX_VALUE, in.readLong());
+        assertEquals(Integer.MAX_VALUE, in.readVInt());
+        assertEquals(-1, in.readVInt());
+        assertEquals(Long.MAX_VALUE, in.readVLong());
+        assertEquals(-123456789L, in.readZLong());
+        assertEquals("ascii, ünïcödé and 中文", in.readString());
+        assertEquals(Arrays.toString(new double[]{1.5, -2.5}), Arrays.toString(in.readDoubleArray()));
+        // a one byte vint at the very end of the stream takes the slow path
+        assertEquals(1, in.readVInt());
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void respectsOffsetAndLimit() throws IOException {
+        byte[] bytes = new byte[]{9, 0, 0, 0, 1, 9};
+        StreamInput in = StreamInput.wrap(bytes, 1, 4);
+        assertEquals(4, in.available());
+        assertEquals(1, in.readInt());
+        try {
+            in.readByte();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void truncatedInput() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeString("truncated");
+        byte[] bytes = out.copyBytes();
+        try {
+            StreamInput.wrap(bytes, 0, bytes.length - 1).readString();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+        try {
+            StreamInput.wrap(new byte[]{0, 0, 0}).readInt();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void ensureCanReadBytesUsesRemainingBytes() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(1000);
+        try {
+            StreamInput.wrap(out.copyBytes()).readByteArray();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void primitiveArrays() throws IOException {
+        Random random = new Random();
+        int[] ints = random.ints(5000).toArray();
+        long[] longs = random.longs(3000).toArray();
+        float[] floats = new float[3000];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = random.nextFloat();
+        }
+        double[] doubles = random.doubles(1025).toArray();
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeIntArray(ints);
+        out.writeLongArray(longs);
+        out.writeFloatArray(floats);
+        out.writeDoubleArray(doubles);
+        out.writeDoubleArray(new double[0]);
+        byte[] bytes = out.copyBytes();
+
+        StreamInput[] inputs = new StreamInput[]{
+                StreamInput.wrap(bytes),
+                new InputStreamStreamInput(new ByteArrayInputStream(bytes))
+        };
+        for (StreamInput in : inputs) {
+            assertArrayEquals(ints, in.readIntArray());
+            assertArrayEquals(longs, in.readLongArray());
+            assertArrayEquals(floats, in.readFloatArray(), 0f);
+            assertArrayEquals(doubles, in.readDoubleArray(), 0d);
+            assertEquals(0, in.readDoubleArray().length);
+        }
+    }
+
+    @Test
+    public void markAndReset() throws IOException {
+        StreamInput in = StreamInput.wrap(new byte[]{1, 2, 3, 4});
+        assertEquals(1, in.readByte());
+        in.mark(0);
+        assertEquals(2, in.skip(2));
+        in.reset();
+        assertEquals(2, in.readByte());
+    }
+}
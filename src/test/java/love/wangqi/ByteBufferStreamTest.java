@@ -0,0 +1,142 @@
+package love.wangqi;
+
+import love.wangqi.stream.ByteBufferStreamInput;
+import love.wangqi.stream.ByteBufferStreamOutput;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.StreamOutput;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ByteBufferStreamTest {
+    Random random = new Random();
+
+    private void writeValues(StreamOutput out, double[] feature) throws IOException {
+        for (int i = 0; i < 20; i++) {
+            out.writeByte((byte) i);
+            out.writeShort((short) i);
+            out.writeInt(-i);
+            out.writeLong(i * 100000000000L);
+            out.writeFloat(i / 3f);
+            out.writeDouble(i / 3d);
+            out.writeVInt(i * 1000);
+            out.writeVLong(i * 100000000000L);
+            out.writeZLong(-i);
+            out.writeString("name " + i + " 中文");
+            out.writeDoubleArray(feature);
+            out.writeIntArray(new int[]{i, -i});
+            out.writeLongArray(new long[]{i, -i});
+            out.writeFloatArray(new float[]{i, -i});
+        }
+    }
+
+    private void readValues(StreamInput in, double[] feature) throws IOException {
+        for (int i = 0; i < 20; i++) {
+            assertEquals((byte) i, in.readByte());
+            assertEquals((short) i, in.readShort());
+            assertEquals(-i, in.readInt());
+            assertEquals(i * 100000000000L, in.readLong());
+            assertEquals(i / 3f, in.readFloat(), 0f);
+            assertEquals(i / 3d, in.readDouble(), 0d);
+            assertEquals(i * 1000, in.readVInt());
+            assertEquals(i * 100000000000L, in.readVLong());
+            assertEquals(-i, in.readZLong());
+            assertEquals("name " + i + " 中文", in.readString());
+            assertArrayEquals(feature, in.readDoubleArray(), 0d);
+            assertArrayEquals(new int[]{i, -i}, in.readIntArray());
+            assertArrayEquals(new long[]{i, -i}, in.readLongArray());
+            assertArrayEquals(new float[]{i, -i}, in.readFloatArray(), 0f);
+        }
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void chainedBuffersMatchBytesStreamOutput() throws IOException {
+        double[] feature = random.doubles(100).toArray();
+        BytesStreamOutput expected = new BytesStreamOutput();
+        writeValues(expected, feature);
+
+        for (boolean direct : new boolean[]{false, true}) {
+            // an odd buffer size makes primitives straddle buffers
+            ByteBufferStreamOutput out = new ByteBufferStreamOutput(61, direct);
+            writeValues(out, feature);
+            assertEquals(expected.size(), out.size());
+            assertEquals(expected.size(), out.position());
+
+            ByteBuffer joined = ByteBuffer.allocate((int) out.size());
+            for (ByteBuffer buffer : out.toByteBuffers()) {
+                joined.put(buffer);
+            }
+            assertArrayEquals(expected.copyBytes(), joined.array());
+
+            out.reset();
+            assertEquals(0, out.size());
+        }
+    }
+
+    @Test
+    public void readHeapAndDirectBuffers() throws IOException {
+        double[] feature = random.doubles(100).toArray();
+        BytesStreamOutput out = new BytesStreamOutput();
+        writeValues(out, feature);
+        byte[] bytes = out.copyBytes();
+
+        ByteBuffer heap = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        for (ByteBuffer buffer : new ByteBuffer[]{heap, direct}) {
+            readValues(new ByteBufferStreamInput(buffer), feature);
+            assertEquals(0, buffer.position());
+        }
+    }
+
+    @Test
+    public void seek() throws IOException {
+        ByteBufferStreamOutput out = new ByteBufferStreamOutput(7, false);
+        out.writeInt(0);
+        out.writeString("hello world");
+        long end = out.position();
+        out.seek(0);
+        out.writeInt(42);
+        out.seek(end);
+        out.writeInt(43);
+
+        ByteBuffer joined = ByteBuffer.allocate((int) out.size());
+        for (ByteBuffer buffer : out.toByteBuffers()) {
+            joined.put(buffer);
+        }
+        joined.flip();
+        StreamInput in = new ByteBufferStreamInput(joined);
+        assertEquals(42, in.readInt());
+        assertEquals("hello world", in.readString());
+        assertEquals(43, in.readInt());
+        try {
+            in.readByte();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void markAndReset() throws IOException {
+        StreamInput in = new ByteBufferStreamInput(ByteBuffer.wrap(new byte[]{1, 2, 3, 4}));
+        // without a mark, reset goes back to the start
+        assertEquals(1, in.readByte());
+        in.reset();
+        assertEquals(1, in.readByte());
+        in.mark(0);
+        assertEquals(2, in.skip(2));
+        in.reset();
+        assertEquals(2, in.readByte());
+    }
+}
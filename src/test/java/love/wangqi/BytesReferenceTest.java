@@ -0,0 +1,96 @@
+package love.wangqi;
+
+import love.wangqi.common.bytes.BytesArray;
+import love.wangqi.common.bytes.BytesReference;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BytesReferenceTest {
+    Random random = new Random();
+
+    @Test
+    public void readBytesReferenceFromEveryInput() throws IOException {
+        byte[] payload = new byte[BytesStreamOutput.PAGE_SIZE + 1000];
+        random.nextBytes(payload);
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeString("before");
+        out.writeBytesReference(new BytesArray(payload));
+        out.writeBytesReference(null);
+        out.writeOptionalBytesReference(null);
+        out.writeOptionalBytesReference(new BytesArray(payload, 10, 20));
+        out.writeString("after");
+        byte[] bytes = out.copyBytes();
+
+        StreamInputs.forEachInput(bytes, in -> assertRead(in, payload));
+        assertRead(out.bytes().streamInput(), payload);
+        assertRead(new BytesArray(bytes).streamInput(), payload);
+    }
+
+    private void assertRead(StreamInput in, byte[] payload) throws IOException {
+        assertEquals("before", in.readString());
+        BytesReference reference = in.readBytesReference();
+        assertEquals(payload.length, reference.length());
+        assertArrayEquals(payload, reference.toBytes());
+        assertEquals(new BytesArray(payload), reference);
+        assertEquals(new BytesArray(payload).hashCode(), reference.hashCode());
+        assertEquals(0, in.readBytesReference().length());
+        assertNull(in.readOptionalBytesReference());
+        assertEquals(new BytesArray(payload, 10, 20), in.readOptionalBytesReference());
+        assertEquals("after", in.readString());
+    }
+
+    @Test
+    public void slices() throws IOException {
+        byte[] payload = new byte[3 * BytesStreamOutput.PAGE_SIZE + 7];
+        random.nextBytes(payload);
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeBytes(payload);
+        BytesReference reference = out.bytes();
+        assertEquals(payload.length, reference.length());
+
+        for (int i = 0; i < 100; i++) {
+            int from = random.nextInt(payload.length);
+            int length = random.nextInt(payload.length - from + 1);
+            BytesReference slice = reference.slice(from, length);
+            assertEquals(length, slice.length());
+            byte[] expected = new byte[length];
+            System.arraycopy(payload, from, expected, 0, length);
+            assertArrayEquals(expected, slice.toBytes());
+            if (length > 0) {
+                assertEquals(payload[from + length - 1], slice.get(length - 1));
+            }
+
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            slice.writeTo(os);
+            assertArrayEquals(expected, os.toByteArray());
+
+            byte[] read = new byte[length];
+            slice.streamInput().readBytes(read, 0, length);
+            assertArrayEquals(expected, read);
+        }
+    }
+
+    @Test
+    public void genericValue() throws IOException {
+        byte[] payload = new byte[100];
+        random.nextBytes(payload);
+        Map<String, Object> map = new HashMap<>();
+        map.put("source", new BytesArray(payload));
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeGenericValue(map);
+
+        Map<String, Object> read = StreamInput.wrap(out.copyBytes()).readMap();
+        assertEquals(new BytesArray(payload), read.get("source"));
+    }
+}
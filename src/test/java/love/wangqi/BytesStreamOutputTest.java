@@ -0,0 +1,80 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BytesStreamOutputTest {
+    Random random = new Random();
+
+    @Test
+    public void writeAcrossPages() throws IOException {
+        byte[] data = new byte[BytesStreamOutput.PAGE_SIZE * 3 + 17];
+        random.nextBytes(data);
+
+        BytesStreamOutput out = new BytesStreamOutput(0);
+        out.writeByte(data[0]);
+        out.writeBytes(data, 1, data.length - 1);
+        assertEquals(data.length, out.size());
+        assertEquals(data.length, out.position());
+        assertArrayEquals(data, out.copyBytes());
+
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        out.writeTo(copy);
+        assertArrayEquals(data, copy.toByteArray());
+
+        ByteBuffer[] buffers = out.toByteBuffers();
+        assertEquals(4, buffers.length);
+        int offset = 0;
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                assertEquals(data[offset++], buffer.get());
+            }
+        }
+        assertEquals(data.length, offset);
+    }
+
+    @Test
+    public void primitivesStraddlingPages() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.seek(BytesStreamOutput.PAGE_SIZE - 3);
+        out.writeInt(0x01020304);
+        out.writeLong(Long.MIN_VALUE + 42);
+        out.writeVInt(300);
+
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        in.skip(BytesStreamOutput.PAGE_SIZE - 3);
+        assertEquals(0x01020304, in.readInt());
+        assertEquals(Long.MIN_VALUE + 42, in.readLong());
+        assertEquals(300, in.readVInt());
+    }
+
+    @Test
+    public void seekAndReset() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeInt(0);
+        out.writeString("hello");
+        long end = out.position();
+        out.seek(0);
+        out.writeInt(42);
+        out.seek(end);
+        assertEquals(end, out.size());
+
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        assertEquals(42, in.readInt());
+        assertEquals("hello", in.readString());
+
+        out.reset();
+        assertEquals(0, out.size());
+        out.writeString("again");
+        assertEquals("again", StreamInput.wrap(out.copyBytes()).readString());
+    }
+}
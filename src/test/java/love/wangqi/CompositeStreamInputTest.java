@@ -0,0 +1,88 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.CompositeStreamInput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CompositeStreamInputTest {
+    Random random = new Random();
+
+    @Test
+    public void readAcrossBuffers() throws IOException {
+        double[] feature = random.doubles(100).toArray();
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (int i = 0; i < 50; i++) {
+            out.writeShort((short) i);
+            out.writeInt(-i);
+            out.writeLong(i * 100000000000L);
+            out.writeVInt(i * 1000);
+            out.writeVLong(i * 100000000000L);
+            out.writeString("name " + i + " 中文");
+            out.writeDoubleArray(feature);
+            out.writeIntArray(new int[]{i, -i});
+        }
+        byte[] bytes = out.copyBytes();
+
+        // cut the bytes into buffers of random sizes, including empty ones
+        List<ByteBuffer> buffers = new ArrayList<>();
+        int offset = 0;
+        while (offset < bytes.length) {
+            int length = Math.min(bytes.length - offset, random.nextInt(40));
+            buffers.add(ByteBuffer.wrap(bytes, offset, length));
+            offset += length;
+        }
+
+        CompositeStreamInput in = new CompositeStreamInput(buffers);
+        assertEquals(bytes.length, in.length());
+        long middle = 0;
+        for (int i = 0; i < 50; i++) {
+            if (i == 25) {
+                middle = in.position();
+            }
+            assertEquals((short) i, in.readShort());
+            assertEquals(-i, in.readInt());
+            assertEquals(i * 100000000000L, in.readLong());
+            assertEquals(i * 1000, in.readVInt());
+            assertEquals(i * 100000000000L, in.readVLong());
+            assertEquals("name " + i + " 中文", in.readString());
+            assertArrayEquals(feature, in.readDoubleArray(), 0d);
+            assertArrayEquals(new int[]{i, -i}, in.readIntArray());
+        }
+        assertEquals(0, in.available());
+        try {
+            in.readByte();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+
+        in.seek(middle);
+        assertEquals((short) 25, in.readShort());
+        assertEquals(-25, in.readInt());
+    }
+
+    @Test
+    public void readBytesStreamOutputPages() throws IOException {
+        byte[] data = new byte[BytesStreamOutput.PAGE_SIZE * 2 + 100];
+        random.nextBytes(data);
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeByteArray(data);
+        out.writeString("tail");
+
+        StreamInput in = new CompositeStreamInput(out.toByteBuffers());
+        assertArrayEquals(data, in.readByteArray());
+        assertEquals("tail", in.readString());
+    }
+}
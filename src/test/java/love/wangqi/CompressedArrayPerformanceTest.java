@@ -0,0 +1,56 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Compares raw double arrays with xor compressed ones on a slowly changing metric and on random values.
+ */
+public class CompressedArrayPerformanceTest {
+    Benchmark benchmark = new Benchmark(1000, 1000);
+    int count = 10000;
+    Random random = new Random();
+
+    private void measureAll(String kind, double[] values) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        benchmark.measure(kind + " write double array", () -> {
+            out.reset();
+            out.writeDoubleArray(values);
+        });
+        byte[] raw = out.copyBytes();
+        benchmark.measure(kind + " write compressed double array", () -> {
+            out.reset();
+            out.writeCompressedDoubleArray(values);
+        });
+        byte[] compressed = out.copyBytes();
+        System.out.println(kind + " double array size: " + raw.length + ", compressed double array size: " + compressed.length);
+
+        double[][] read = new double[1][];
+        benchmark.measure(kind + " read double array", () -> read[0] = StreamInput.wrap(raw).readDoubleArray());
+        assertArrayEquals(values, read[0], 0);
+        benchmark.measure(kind + " read compressed double array", () -> read[0] = StreamInput.wrap(compressed).readCompressedDoubleArray());
+        assertArrayEquals(values, read[0], 0);
+    }
+
+    @Test
+    public void slowlyChanging() throws IOException {
+        double[] values = new double[count];
+        values[0] = 42.5;
+        for (int i = 1; i < count; i++) {
+            // a gauge that mostly keeps its value and moves by quarter steps
+            values[i] = random.nextInt(4) == 0 ? values[i - 1] + (random.nextInt(11) - 5) * 0.25 : values[i - 1];
+        }
+        measureAll("slowly changing", values);
+    }
+
+    @Test
+    public void randomValues() throws IOException {
+        measureAll("random", random.doubles(count).toArray());
+    }
+}
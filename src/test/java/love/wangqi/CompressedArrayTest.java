@@ -0,0 +1,71 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompressedArrayTest {
+    Random random = new Random();
+
+    @Test
+    public void specialValues() throws IOException {
+        double[] doubles = {Double.NaN, Double.longBitsToDouble(0x7FF8000000000123L), Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, 0.0, -0.0};
+        float[] floats = {Float.NaN, Float.intBitsToFloat(0x7FC00123), Float.MIN_VALUE, Float.MAX_VALUE, -0f, 0f};
+        StreamInputs.assertRoundTrip(out -> {
+            out.writeCompressedDoubleArray(new double[]{-0.0});
+            out.writeCompressedDoubleArray(doubles);
+            out.writeCompressedFloatArray(floats);
+        }, in -> {
+            assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(in.readCompressedDoubleArray()[0]));
+            double[] readDoubles = in.readCompressedDoubleArray();
+            assertEquals(doubles.length, readDoubles.length);
+            for (int i = 0; i < doubles.length; i++) {
+                // compares the raw bits, so the payloads of the NaNs and the sign of the zeros are checked too
+                assertEquals(Double.doubleToRawLongBits(doubles[i]), Double.doubleToRawLongBits(readDoubles[i]));
+            }
+            float[] readFloats = in.readCompressedFloatArray();
+            assertEquals(floats.length, readFloats.length);
+            for (int i = 0; i < floats.length; i++) {
+                assertEquals(Float.floatToRawIntBits(floats[i]), Float.floatToRawIntBits(readFloats[i]));
+            }
+        });
+    }
+
+    @Test
+    public void sizes() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        double[] constant = new double[800];
+        Arrays.fill(constant, 1.5);
+        out.writeCompressedDoubleArray(constant);
+        // the length, the first value and a bit per repeated value
+        assertEquals(2 + 8 + 100, out.size());
+
+        out.reset();
+        out.writeCompressedDoubleArray(random.doubles(10000).toArray());
+        // random values are not compressible, the control bits stay a small overhead
+        assertTrue(String.valueOf(out.size()), out.size() < 10000 * 8 * 1.1);
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeCompressedDoubleArray(new double[]{1.0, 2.0, 3.0});
+        byte[] bytes = out.copyBytes();
+        try {
+            StreamInput.wrap(Arrays.copyOf(bytes, bytes.length - 1)).readCompressedDoubleArray();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Compares fixed size long arrays with delta encoded ones on time series: timestamps sampled at a regular interval and a
+ * slowly growing counter.
+ */
+public class DeltaArrayPerformanceTest {
+    Benchmark benchmark = new Benchmark(1000, 1000);
+    int count = 10000;
+    Random random = new Random();
+
+    interface Writer {
+        void write(BytesStreamOutput out, long[] values) throws IOException;
+    }
+
+    interface Reader {
+        long[] read(StreamInput in) throws IOException;
+    }
+
+    private void measure(String kind, String encoding, long[] values, Writer writer, Reader reader) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        benchmark.measure(kind + " write " + encoding, () -> {
+            out.reset();
+            writer.write(out, values);
+        });
+        byte[] bytes = out.copyBytes();
+        System.out.println(kind + " " + encoding + " size: " + bytes.length);
+        long[][] read = new long[1][];
+        benchmark.measure(kind + " read " + encoding, () -> read[0] = reader.read(StreamInput.wrap(bytes)));
+        assertArrayEquals(values, read[0]);
+    }
+
+    private void measureAll(String kind, long[] values) throws IOException {
+        measure(kind, "long array", values, StreamOutputWriters::longArray, StreamInput::readLongArray);
+        measure(kind, "delta array", values, StreamOutputWriters::deltaArray, StreamInput::readDeltaLongArray);
+        measure(kind, "packed delta array", values, StreamOutputWriters::packedDeltaArray, StreamInput::readPackedDeltaLongArray);
+    }
+
+    private static class StreamOutputWriters {
+        static void longArray(BytesStreamOutput out, long[] values) throws IOException {
+            out.writeLongArray(values);
+        }
+
+        static void deltaArray(BytesStreamOutput out, long[] values) throws IOException {
+            out.writeDeltaLongArray(values);
+        }
+
+        static void packedDeltaArray(BytesStreamOutput out, long[] values) throws IOException {
+            out.writePackedDeltaLongArray(values);
+        }
+    }
+
+    @Test
+    public void timestamps() throws IOException {
+        long[] values = new long[count];
+        values[0] = 1577836800000L;
+        for (int i = 1; i < count; i++) {
+            values[i] = values[i - 1] + 1000 + random.nextInt(20) - 10;
+        }
+        measureAll("timestamp", values);
+    }
+
+    @Test
+    public void counters() throws IOException {
+        long[] values = new long[count];
+        for (int i = 1; i < count; i++) {
+            values[i] = values[i - 1] + random.nextInt(200);
+        }
+        measureAll("counter", values);
+    }
+}
@@ -0,0 +1,32 @@
+package love.wangqi;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class DeltaArrayTest {
+
+    @Test
+    public void overflowingDeltas() throws IOException {
+        // the deltas between these overflow, and must wrap around back to the values
+        int[] ints = {Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+        long[][] longs = {{Long.MAX_VALUE}, {Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, 0, -1}};
+        StreamInputs.assertRoundTrip(out -> {
+            out.writeDeltaIntArray(ints);
+            out.writePackedDeltaIntArray(ints);
+            for (long[] values : longs) {
+                out.writeDeltaLongArray(values);
+                out.writePackedDeltaLongArray(values);
+            }
+        }, in -> {
+            assertArrayEquals(ints, in.readDeltaIntArray());
+            assertArrayEquals(ints, in.readPackedDeltaIntArray());
+            for (long[] values : longs) {
+                assertArrayEquals(values, in.readDeltaLongArray());
+                assertArrayEquals(values, in.readPackedDeltaLongArray());
+            }
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.GenericValueRegistry;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.StreamOutput;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GenericValueRegistryTest {
+
+    static class Point {
+        final double lat;
+        final double lon;
+
+        Point(double lat, double lon) {
+            this.lat = lat;
+            this.lon = lon;
+        }
+
+        Point(StreamInput in) throws IOException {
+            this(in.readDouble(), in.readDouble());
+        }
+
+        void writeTo(StreamOutput out) throws IOException {
+            out.writeDouble(lat);
+            out.writeDouble(lon);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || o.getClass() != getClass()) {
+                return false;
+            }
+            Point point = (Point) o;
+            return lat == point.lat && lon == point.lon;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lat, lon);
+        }
+    }
+
+    /**
+     * Written by the writer of its super type.
+     */
+    static class NamedPoint extends Point {
+        NamedPoint(double lat, double lon) {
+            super(lat, lon);
+        }
+    }
+
+    static class Unregistered {
+    }
+
+    @BeforeClass
+    public static void register() {
+        GenericValueRegistry.register(64, Point.class, (out, point) -> point.writeTo(out), Point::new);
+    }
+
+    @Test
+    public void registeredType() throws IOException {
+        Map<String, Object> map = new HashMap<>();
+        map.put("location", new Point(1.5, 2.5));
+        map.put("named", new NamedPoint(3.5, 4.5));
+        map.put("path", Arrays.asList(new Point(0, 0), new Point(1, 1)));
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeMap(map);
+
+        Map<String, Object> read = StreamInput.wrap(out.copyBytes()).readMap();
+        assertEquals(new Point(1.5, 2.5), read.get("location"));
+        assertEquals(new Point(3.5, 4.5), read.get("named"));
+        assertEquals(Arrays.asList(new Point(0, 0), new Point(1, 1)), read.get("path"));
+        assertTrue(GenericValueRegistry.isRegistered(Point.class));
+        assertFalse(GenericValueRegistry.isRegistered(NamedPoint.class));
+    }
+
+    @Test
+    public void builtInSuperTypes() throws IOException {
+        List<Object> values = new ArrayList<>();
+        values.add(new LinkedList<>(Arrays.asList(1, 2)));
+        values.add(Collections.unmodifiableList(Arrays.asList("a", "b")));
+        values.add(new TreeMap<>(Collections.singletonMap("k", 1L)));
+        values.add(new String[]{"x", "y"});
+        values.add(new Timestamp(1234));
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeGenericValue(values);
+
+        List<?> read = (List<?>) StreamInput.wrap(out.copyBytes()).readGenericValue();
+        assertEquals(Arrays.asList(1, 2), read.get(0));
+        assertEquals(Arrays.asList("a", "b"), read.get(1));
+        assertEquals(Collections.singletonMap("k", 1L), read.get(2));
+        assertEquals(Arrays.asList("x", "y"), Arrays.asList((Object[]) read.get(3)));
+        assertEquals(new Date(1234), read.get(4));
+    }
+
+    @Test
+    public void unknownTypes() throws IOException {
+        try {
+            new BytesStreamOutput().writeGenericValue(new Unregistered());
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("can not write type"));
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeByte((byte) 100);
+        try {
+            StreamInput.wrap(out.copyBytes()).readGenericValue();
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertEquals("Can't read unknown type [100]", e.getMessage());
+        }
+    }
+
+    @Test
+    public void invalidRegistrations() {
+        for (int typeByte : new int[]{0, 14, 63, 128}) {
+            try {
+                GenericValueRegistry.register(typeByte, Unregistered.class, (out, v) -> { }, in -> new Unregistered());
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("type byte must be in"));
+            }
+        }
+        try {
+            GenericValueRegistry.register(64, Unregistered.class, (out, v) -> { }, in -> new Unregistered());
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("already registered"));
+        }
+        try {
+            GenericValueRegistry.register(65, String.class, StreamOutput::writeString, StreamInput::readString);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("already registered"));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.InputStreamStreamInput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class InputStreamStreamInputTest {
+    Random random = new Random();
+
+    /**
+     * Returns at most a few bytes per read call, like a socket would, so that values straddle buffer refills.
+     */
+    static class TrickleInputStream extends ByteArrayInputStream {
+        TrickleInputStream(byte[] buf) {
+            super(buf);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 3));
+        }
+    }
+
+    @Test
+    public void bufferedRoundTrip() throws IOException {
+        double[] feature = random.doubles(1024).toArray();
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (int i = 0; i < 100; i++) {
+            out.writeInt(i);
+            out.writeVInt(i * 1000);
+            out.writeVLong(i * 100000000000L);
+            out.writeLong(-i);
+            out.writeString("name " + i + " 中文");
+            out.writeDoubleArray(feature);
+        }
+        byte[] bytes = out.copyBytes();
+
+        for (int bufferSize : new int[]{1, 7, 64, 8192}) {
+            StreamInput in = new InputStreamStreamInput(new TrickleInputStream(bytes), bytes.length, bufferSize);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, in.readInt());
+                assertEquals(i * 1000, in.readVInt());
+                assertEquals(i * 100000000000L, in.readVLong());
+                assertEquals(-i, in.readLong());
+                assertEquals("name " + i + " 中文", in.readString());
+                assertArrayEquals(feature, in.readDoubleArray(), 0d);
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void bufferedMarkResetSkipAvailable() throws IOException {
+        byte[] bytes = new byte[100];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        StreamInput in = new InputStreamStreamInput(new TrickleInputStream(bytes), bytes.length, 8);
+        assertEquals(0, in.readByte());
+        in.mark(50);
+        byte[] read = new byte[30];
+        in.readBytes(read, 0, read.length);
+        assertEquals(1, read[0]);
+        in.reset();
+        assertEquals(1, in.readByte());
+        long skipped = 0;
+        while (skipped < 9) {
+            skipped += in.skip(9 - skipped);
+        }
+        assertEquals(11, in.readByte());
+        assertEquals(bytes.length - 12, in.available());
+
+        byte[] rest = new byte[bytes.length - 12];
+        in.readBytes(rest, 0, rest.length);
+        assertArrayEquals(Arrays.copyOfRange(bytes, 12, bytes.length), rest);
+    }
+}
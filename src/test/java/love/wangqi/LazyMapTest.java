@@ -0,0 +1,122 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.InputStreamStreamInput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyMapTest {
+    Random random = new Random();
+
+    private Map<String, Object> document(int i) {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("id", i);
+        doc.put("title", "document " + i + " 中文");
+        doc.put("tags", Arrays.asList("a", "b", "c"));
+        doc.put("scores", Arrays.asList(1.0, 2.0));
+        doc.put("null", null);
+        Map<String, Object> user = new HashMap<>();
+        user.put("name", "user " + random.nextInt(10));
+        user.put("age", random.nextInt(100));
+        Map<String, Object> geo = new LinkedHashMap<>();
+        geo.put("lat", random.nextDouble());
+        geo.put("lon", random.nextDouble());
+        user.put("geo", geo);
+        doc.put("user", user);
+        doc.put("events", Arrays.asList(geo, "event", 3L, Arrays.asList(user, null)));
+        return doc;
+    }
+
+    private void assertLazy(StreamInput in, List<Map<String, Object>> docs) throws IOException {
+        Map<String, Object> first = in.readLazyMap();
+        assertEquals("after first", in.readString());
+        Map<String, Object> second = in.readMap();
+        Map<String, Object> third = in.readLazyMap();
+        assertNull(in.readLazyMap());
+        assertEquals(0, in.available());
+
+        // values are looked up in any order, long after the stream has moved on
+        Map<?, ?> user = (Map<?, ?>) third.get("user");
+        assertEquals(((Map<?, ?>) docs.get(2).get("user")).get("geo"), user.get("geo"));
+        assertEquals(docs.get(2).get("title"), third.get("title"));
+        assertEquals(docs.get(0).get("events"), first.get("events"));
+        assertEquals(docs.get(0), first);
+        assertEquals(docs.get(1), second);
+        assertEquals(docs.get(2), third);
+        assertEquals(docs.get(2).keySet(), third.keySet());
+        assertTrue(third.containsKey("null"));
+        assertNull(third.get("null"));
+        assertFalse(third.containsKey("missing"));
+        assertNull(third.get("missing"));
+    }
+
+    private byte[] write(List<Map<String, Object>> docs, boolean stringDictionary) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        if (stringDictionary) {
+            out.enableStringDictionary();
+        }
+        out.writeMap(docs.get(0));
+        out.writeString("after first");
+        out.writeMap(docs.get(1));
+        out.writeMap(docs.get(2));
+        out.writeGenericValue(null);
+        return out.copyBytes();
+    }
+
+    @Test
+    public void readLazyMapFromEveryInput() throws IOException {
+        List<Map<String, Object>> docs = Arrays.asList(document(0), document(1), document(2));
+        for (boolean stringDictionary : new boolean[]{false, true}) {
+            byte[] bytes = write(docs, stringDictionary);
+            StreamInputs.forEachInput(bytes, in -> assertLazy(in, docs));
+            // streams that are not backed by memory read the map eagerly
+            assertFalse(new InputStreamStreamInput(new ByteArrayInputStream(bytes)).isBackedByMemory());
+        }
+    }
+
+    @Test
+    public void readOnly() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeMap(document(0));
+        Map<String, Object> map = StreamInput.wrap(out.copyBytes()).readLazyMap();
+        try {
+            map.put("id", 1);
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            ((List<?>) map.get("events")).set(0, null);
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void notAMap() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeGenericValue("string");
+        try {
+            StreamInput.wrap(out.copyBytes()).readLazyMap();
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertEquals("Can't read a map from type [0]", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package love.wangqi;
+
+import love.wangqi.common.bytes.BytesReference;
+import love.wangqi.stream.MMapStreamInput;
+import love.wangqi.stream.OutputStreamStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class MMapStreamInputTest {
+    Random random = new Random();
+
+    private User newUser(int id) {
+        User user = new User();
+        user.setId(id);
+        user.setName("user " + id + " 中文");
+        user.setAge((short) id);
+        user.setFeature(IntStream.range(0, 100)
+                .mapToDouble(i -> random.nextDouble()).boxed().collect(Collectors.toList()));
+        return user;
+    }
+
+    @Test
+    public void readRecordsAcrossRegions() throws IOException {
+        Path file = Files.createTempFile("users", ".bin");
+        try {
+            User[] users = new User[50];
+            long[] offsets = new long[users.length + 1];
+            try (OutputStreamStreamOutput out = new OutputStreamStreamOutput(Files.newOutputStream(file), 8192)) {
+                for (int i = 0; i < users.length; i++) {
+                    users[i] = newUser(i);
+                    users[i].writeTo(out);
+                    out.writeVLong(i * 100000000000L);
+                    out.writeLongArray(new long[]{i, -i});
+                }
+            }
+
+            // small regions so that records straddle them
+            MMapStreamInput in = MMapStreamInput.open(file, 64);
+            assertEquals(Files.size(file), in.length());
+            for (int i = 0; i < users.length; i++) {
+                offsets[i] = in.position();
+                User user = new User();
+                user.readFrom(in);
+                assertEquals(users[i].getId(), user.getId());
+                assertEquals(users[i].getName(), user.getName());
+                assertEquals(users[i].getAge(), user.getAge());
+                assertEquals(users[i].getFeature(), user.getFeature());
+                assertEquals(i * 100000000000L, in.readVLong());
+                assertArrayEquals(new long[]{i, -i}, in.readLongArray());
+            }
+            offsets[users.length] = in.position();
+            assertEquals(in.length(), in.position());
+            try {
+                in.readByte();
+                fail("expected EOFException");
+            } catch (EOFException e) {
+                // expected
+            }
+
+            // seek back to a record, and read another one through an independent slice
+            in.seek(offsets[10]);
+            User user = new User();
+            user.readFrom(in);
+            assertEquals(10, user.getId());
+            assertEquals(10 * 100000000000L, in.readVLong());
+            in.readLongArray();
+
+            MMapStreamInput slice = in.slice(offsets[20], offsets[21] - offsets[20]);
+            user = new User();
+            user.readFrom(slice);
+            assertEquals(20, user.getId());
+            assertEquals(users[20].getFeature(), user.getFeature());
+            assertEquals(20 * 100000000000L, slice.readVLong());
+            slice.readLongArray();
+            assertEquals(0, slice.available());
+            assertEquals(offsets[11], in.position());
+
+            // a bytes reference over the mapped regions spans them without copying
+            in.seek(offsets[30]);
+            int length = (int) (offsets[32] - offsets[30]);
+            BytesReference reference = in.readBytesReference(length);
+            assertEquals(offsets[32], in.position());
+            StreamInput referenceIn = reference.streamInput();
+            for (int i = 30; i < 32; i++) {
+                user = new User();
+                user.readFrom(referenceIn);
+                assertEquals(users[i].getName(), user.getName());
+                assertEquals(i * 100000000000L, referenceIn.readVLong());
+                assertArrayEquals(new long[]{i, -i}, referenceIn.readLongArray());
+            }
+            assertEquals(0, referenceIn.available());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
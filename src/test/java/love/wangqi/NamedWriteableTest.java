@@ -0,0 +1,199 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.NamedWriteable;
+import love.wangqi.stream.NamedWriteableRegistry;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.StreamOutput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NamedWriteableTest {
+
+    interface Command extends NamedWriteable {
+    }
+
+    interface Aggregation extends NamedWriteable {
+    }
+
+    static class Put implements Command {
+        final String key;
+        final long value;
+
+        Put(String key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        Put(StreamInput in) throws IOException {
+            this(in.readString(), in.readVLong());
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(key);
+            out.writeVLong(value);
+        }
+
+        @Override
+        public String getWriteableName() {
+            return "put";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Put && ((Put) o).key.equals(key) && ((Put) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, value);
+        }
+    }
+
+    static class Delete implements Command {
+        final String key;
+
+        Delete(String key) {
+            this.key = key;
+        }
+
+        Delete(StreamInput in) throws IOException {
+            this(in.readString());
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(key);
+        }
+
+        @Override
+        public String getWriteableName() {
+            return "delete";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Delete && ((Delete) o).key.equals(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+    }
+
+    /**
+     * Shares its name with {@link Put} but belongs to another category.
+     */
+    static class Sum implements Aggregation {
+        final double value;
+
+        Sum(double value) {
+            this.value = value;
+        }
+
+        Sum(StreamInput in) throws IOException {
+            this(in.readDouble());
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeDouble(value);
+        }
+
+        @Override
+        public String getWriteableName() {
+            return "put";
+        }
+    }
+
+    private NamedWriteableRegistry registry() {
+        return new NamedWriteableRegistry(Arrays.asList(
+            new NamedWriteableRegistry.Entry(Command.class, "put", Put::new),
+            new NamedWriteableRegistry.Entry(Command.class, "delete", Delete::new),
+            new NamedWriteableRegistry.Entry(Aggregation.class, "put", Sum::new)));
+    }
+
+    @Test
+    public void heterogeneousList() throws IOException {
+        NamedWriteableRegistry registry = registry();
+        List<Command> commands = Arrays.asList(new Put("a", 1), new Delete("a"), new Put("b", 2));
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setNamedWriteableRegistry(registry);
+        out.writeNamedWriteableList(commands);
+        out.writeOptionalNamedWriteable(null);
+        out.writeOptionalNamedWriteable(new Sum(1.5));
+        // ids are written as a single byte rather than the name
+        assertEquals(1 + (1 + 2 + 1) + (1 + 2) + (1 + 2 + 1) + 1 + 1 + 1 + 8, out.size());
+
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        in.setNamedWriteableRegistry(registry);
+        assertEquals(commands, in.readNamedWriteableList(Command.class));
+        assertNull(in.readOptionalNamedWriteable(Command.class));
+        assertEquals(1.5, ((Sum) in.readOptionalNamedWriteable(Aggregation.class)).value, 0d);
+    }
+
+    @Test
+    public void errors() throws IOException {
+        NamedWriteableRegistry registry = registry();
+        BytesStreamOutput out = new BytesStreamOutput();
+        try {
+            out.writeNamedWriteable(new Put("a", 1));
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("without a NamedWriteableRegistry"));
+        }
+
+        out.setNamedWriteableRegistry(new NamedWriteableRegistry(Collections.emptyList()));
+        try {
+            out.writeNamedWriteable(new Put("a", 1));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Unknown NamedWriteable [put]"));
+        }
+
+        out.setNamedWriteableRegistry(registry);
+        out.writeNamedWriteable(new Put("a", 1));
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        in.setNamedWriteableRegistry(registry);
+        try {
+            in.readNamedWriteable(Aggregation.class);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("is not a"));
+        }
+        // only the id was read
+        assertEquals("a", in.readString());
+
+        out.reset();
+        out.writeVInt(42);
+        in = StreamInput.wrap(out.copyBytes());
+        in.setNamedWriteableRegistry(registry);
+        try {
+            in.readNamedWriteable(Command.class);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Unknown NamedWriteable id [42]"));
+        }
+
+        try {
+            new NamedWriteableRegistry(Arrays.asList(
+                new NamedWriteableRegistry.Entry(Command.class, "put", Put::new),
+                new NamedWriteableRegistry.Entry(Command.class, "put", Put::new)));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("is already registered"));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package love.wangqi;
+
+import love.wangqi.stream.OutputStreamStreamOutput;
+import love.wangqi.stream.StreamOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class OutputStreamStreamOutputTest {
+    Random random = new Random();
+
+    private void writeValues(StreamOutput out, double[] feature) throws IOException {
+        for (int i = 0; i < 100; i++) {
+            out.writeByte((byte) i);
+            out.writeShort((short) i);
+            out.writeInt(-i);
+            out.writeLong(i * 100000000000L);
+            out.writeVInt(i * 1000);
+            out.writeVInt(-i);
+            out.writeVLong(i * 100000000000L);
+            out.writeZLong(-i * 100000000000L);
+            out.writeString("name " + i + " 中文");
+            out.writeDoubleArray(feature);
+            out.writeByteArray(new byte[i * 10]);
+        }
+    }
+
+    @Test
+    public void bufferedOutputMatchesUnbuffered() throws IOException {
+        double[] feature = random.doubles(1024).toArray();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (OutputStreamStreamOutput out = new OutputStreamStreamOutput(expected)) {
+            writeValues(out, feature);
+        }
+
+        for (int bufferSize : new int[]{10, 11, 64, 8192}) {
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            OutputStreamStreamOutput out = new OutputStreamStreamOutput(actual, bufferSize);
+            writeValues(out, feature);
+            out.flush();
+            assertArrayEquals("buffer size " + bufferSize, expected.toByteArray(), actual.toByteArray());
+            out.close();
+        }
+    }
+
+    @Test
+    public void bufferedOutputOnlyWritesOnFlush() throws IOException {
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        OutputStreamStreamOutput out = new OutputStreamStreamOutput(actual, 1024);
+        out.writeLong(1L);
+        assertEquals(0, actual.size());
+        out.flush();
+        assertEquals(Long.BYTES, actual.size());
+    }
+}
@@ -0,0 +1,69 @@
+package love.wangqi;
+
+import love.wangqi.stream.ByteBufferStreamInput;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Compares vint arrays with block packed arrays on posting list like data: sorted document ids, and the gaps between them.
+ */
+public class PackedArrayPerformanceTest {
+    Benchmark benchmark = new Benchmark(1000, 1000);
+    int count = 10000;
+    Random random = new Random();
+
+    private void measureAll(String kind, int[] values) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        benchmark.measure(kind + " write vint array", () -> {
+            out.reset();
+            out.writeVIntArray(values);
+        });
+        byte[] vints = out.copyBytes();
+        benchmark.measure(kind + " write packed array", () -> {
+            out.reset();
+            out.writePackedIntArray(values);
+        });
+        byte[] packed = out.copyBytes();
+        System.out.println(kind + " vint array size: " + vints.length + ", packed array size: " + packed.length);
+
+        int[][] read = new int[1][];
+        benchmark.measure(kind + " read vint array", () -> read[0] = StreamInput.wrap(vints).readVIntArray());
+        assertArrayEquals(values, read[0]);
+        benchmark.measure(kind + " read packed array", () -> read[0] = StreamInput.wrap(packed).readPackedIntArray());
+        assertArrayEquals(values, read[0]);
+
+        ByteBuffer directVInts = ByteBuffer.allocateDirect(vints.length);
+        directVInts.put(vints).flip();
+        ByteBuffer directPacked = ByteBuffer.allocateDirect(packed.length);
+        directPacked.put(packed).flip();
+        benchmark.measure(kind + " read vint array from direct buffer", () -> read[0] = new ByteBufferStreamInput(directVInts).readVIntArray());
+        assertArrayEquals(values, read[0]);
+        benchmark.measure(kind + " read packed array from direct buffer", () -> read[0] = new ByteBufferStreamInput(directPacked).readPackedIntArray());
+        assertArrayEquals(values, read[0]);
+    }
+
+    @Test
+    public void sortedIds() throws IOException {
+        int[] ids = new int[count];
+        for (int i = 1; i < count; i++) {
+            ids[i] = ids[i - 1] + 1 + random.nextInt(1000);
+        }
+        measureAll("sorted ids", ids);
+    }
+
+    @Test
+    public void gaps() throws IOException {
+        int[] gaps = new int[count];
+        for (int i = 0; i < count; i++) {
+            gaps[i] = 1 + random.nextInt(random.nextInt(10) == 0 ? 5000 : 100);
+        }
+        measureAll("gaps", gaps);
+    }
+}
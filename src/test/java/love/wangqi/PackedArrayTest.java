@@ -0,0 +1,66 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PackedArrayTest {
+
+    @Test
+    public void fullWidthBlocks() throws IOException {
+        // the whole range of values, so the blocks take every bit and the minimum is subtracted without overflowing
+        int[] ints = {Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1};
+        long[][] longs = {{Long.MIN_VALUE}, {Long.MIN_VALUE, Long.MAX_VALUE, 0, -1, Long.MAX_VALUE}};
+        StreamInputs.assertRoundTrip(out -> {
+            out.writePackedIntArray(ints);
+            for (long[] values : longs) {
+                out.writePackedLongArray(values);
+            }
+        }, in -> {
+            assertArrayEquals(ints, in.readPackedIntArray());
+            for (long[] values : longs) {
+                assertArrayEquals(values, in.readPackedLongArray());
+            }
+        });
+    }
+
+    @Test
+    public void constantBlocks() throws IOException {
+        // a block of equal values only takes its header: the number of bits and the minimum
+        BytesStreamOutput packed = new BytesStreamOutput();
+        packed.writePackedLongArray(new long[100]);
+        assertEquals(1 + 1 + 1, packed.size());
+    }
+
+    @Test
+    public void corruptBlocks() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVInt(1);
+        out.writeByte((byte) 65);
+        out.writeZLong(0);
+        try {
+            StreamInput.wrap(out.copyBytes()).readPackedLongArray();
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertEquals("Invalid packed block of 65 bits per value", e.getMessage());
+        }
+
+        out.reset();
+        out.writePackedIntArray(new int[]{1, 1000});
+        byte[] bytes = out.copyBytes();
+        try {
+            StreamInput.wrap(Arrays.copyOf(bytes, bytes.length - 1)).readPackedIntArray();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+}
@@ -3,6 +3,7 @@ package love.wangqi;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import love.wangqi.stream.InputStreamStreamInput;
 import love.wangqi.stream.OutputStreamStreamOutput;
+import love.wangqi.stream.Streams;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -54,6 +55,25 @@ public class PerformanceTest {
         outputStreamStreamOutput.close();
     }
 
+    @Test
+    public void writeBufferedStreamToBytes() throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        OutputStreamStreamOutput outputStreamStreamOutput = new OutputStreamStreamOutput(byteArrayOutputStream, Streams.BUFFER_SIZE);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < loop; i++) {
+            user.writeTo(outputStreamStreamOutput);
+            outputStreamStreamOutput.flush();
+        }
+        long end = System.currentTimeMillis();
+        System.out.println("cost: " + (end - start));
+
+        int size = byteArrayOutputStream.size();
+        System.out.println(size);
+
+        outputStreamStreamOutput.close();
+    }
+
     @Test
     public void writeJsonToBytes() throws IOException {
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
@@ -0,0 +1,110 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures reading two fields out of documents of growing size with {@link StreamInput#readMap(Set)}, compared to reading
+ * the whole document. The encoding has no length prefix per value, so the projection still walks the whole document, but
+ * skipping a value only reads its type bytes and length prefixes, which costs a fraction of decoding it. On a document of
+ * a fixed size the cost then grows with the number and the depth of the projected paths.
+ */
+public class ProjectionPerformanceTest {
+    Benchmark benchmark = new Benchmark(100, 100);
+    int count = 50;
+    Random random = new Random();
+
+    private Map<String, Object> document(int fields) {
+        Map<String, Object> doc = new HashMap<>();
+        Map<String, Object> user = new HashMap<>();
+        user.put("name", "user " + random.nextInt(100));
+        user.put("id", random.nextLong());
+        doc.put("user", user);
+        doc.put("timestamp", System.currentTimeMillis());
+        for (int i = 0; i < fields; i++) {
+            Map<String, Object> nested = new HashMap<>();
+            nested.put("text", "some text that nobody reads " + i);
+            nested.put("values", Arrays.asList(random.nextInt(), random.nextInt(), random.nextInt()));
+            nested.put("score", random.nextDouble());
+            doc.put("field" + i, nested);
+        }
+        return doc;
+    }
+
+    @Test
+    public void projection() throws IOException {
+        Set<String> includePaths = new HashSet<>(Arrays.asList("user.name", "timestamp"));
+        for (int fields : new int[]{10, 100, 1000}) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            for (int i = 0; i < count; i++) {
+                out.writeMap(document(fields));
+            }
+            byte[] bytes = out.copyBytes();
+
+            benchmark.measure(fields + " fields full read", () -> {
+                StreamInput in = StreamInput.wrap(bytes);
+                for (int i = 0; i < count; i++) {
+                    in.readMap();
+                }
+            });
+            benchmark.measure(fields + " fields projected read", () -> {
+                StreamInput in = StreamInput.wrap(bytes);
+                for (int i = 0; i < count; i++) {
+                    in.readMap(includePaths);
+                }
+            });
+
+            StreamInput in = StreamInput.wrap(bytes);
+            Map<String, Object> projected = in.readMap(includePaths);
+            assertEquals(new HashSet<>(Arrays.asList("user", "timestamp")), projected.keySet());
+            assertEquals(Collections.singleton("name"), ((Map<?, ?>) projected.get("user")).keySet());
+        }
+    }
+
+    @Test
+    public void projectedPaths() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (int i = 0; i < count; i++) {
+            out.writeMap(document(1000));
+        }
+        byte[] bytes = out.copyBytes();
+
+        for (int paths : new int[]{1, 10, 100, 1000}) {
+            Set<String> fields = new HashSet<>();
+            Set<String> leaves = new HashSet<>();
+            for (int i = 0; i < paths; i++) {
+                fields.add("field" + i);
+                leaves.add("field" + i + ".score");
+            }
+            benchmark.measure(paths + " fields projected read", () -> {
+                StreamInput in = StreamInput.wrap(bytes);
+                for (int i = 0; i < count; i++) {
+                    in.readMap(fields);
+                }
+            });
+            // one level deeper, the rest of every projected field is skipped
+            benchmark.measure(paths + " leaves projected read", () -> {
+                StreamInput in = StreamInput.wrap(bytes);
+                for (int i = 0; i < count; i++) {
+                    in.readMap(leaves);
+                }
+            });
+
+            Map<String, Object> projected = StreamInput.wrap(bytes).readMap(leaves);
+            assertEquals(paths, projected.size());
+            assertEquals(Collections.singleton("score"), ((Map<?, ?>) projected.get("field0")).keySet());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProjectionTest {
+
+    private Map<String, Object> document() {
+        Map<String, Object> geo = new LinkedHashMap<>();
+        geo.put("lat", 31.2);
+        geo.put("lon", 121.5);
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("name", "wangqi");
+        user.put("age", 30);
+        user.put("geo", geo);
+        Map<String, Object> first = new HashMap<>();
+        first.put("type", "click");
+        first.put("at", 1L);
+        Map<String, Object> second = new HashMap<>();
+        second.put("type", "view");
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("id", 1);
+        doc.put("title", "title");
+        doc.put("user", user);
+        doc.put("events", Arrays.asList(first, "not a map", second));
+        doc.put("tags", Arrays.asList("a", "b"));
+        doc.put("nothing", null);
+        return doc;
+    }
+
+    private Map<String, Object> project(boolean stringDictionary, String... paths) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        if (stringDictionary) {
+            out.enableStringDictionary();
+        }
+        out.writeMap(document());
+        out.writeMap(document());
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        Map<String, Object> projected = in.readMap(new HashSet<>(Arrays.asList(paths)));
+        // the rest of the stream is still in sync, including the string dictionary
+        assertEquals(document(), in.readMap());
+        assertEquals(0, in.available());
+        return projected;
+    }
+
+    @Test
+    public void project() throws IOException {
+        for (boolean stringDictionary : new boolean[]{false, true}) {
+            Map<String, Object> expected = new LinkedHashMap<>();
+            expected.put("id", 1);
+            Map<String, Object> user = new LinkedHashMap<>();
+            user.put("name", "wangqi");
+            Map<String, Object> geo = new LinkedHashMap<>();
+            geo.put("lat", 31.2);
+            user.put("geo", geo);
+            expected.put("user", user);
+            assertEquals(expected, project(stringDictionary, "id", "user.name", "user.geo.lat", "missing"));
+
+            // a path includes everything below it, whatever the other paths
+            expected.clear();
+            expected.put("user", document().get("user"));
+            assertEquals(expected, project(stringDictionary, "user.name", "user"));
+            assertEquals(expected, project(stringDictionary, "user", "user.geo.lat"));
+
+            // paths go through lists into the maps they hold
+            expected.clear();
+            expected.put("events", Arrays.asList(Collections.singletonMap("type", "click"), Collections.singletonMap("type", "view")));
+            assertEquals(expected, project(stringDictionary, "events.type"));
+
+            // maps that end up empty and paths below values that are not maps are left out
+            assertEquals(Collections.emptyMap(), project(stringDictionary, "user.missing", "title.length", "tags.first"));
+            assertTrue(project(stringDictionary).isEmpty());
+
+            expected.clear();
+            expected.put("nothing", null);
+            assertEquals(expected, project(stringDictionary, "nothing", "nothing.below"));
+        }
+    }
+
+    @Test
+    public void projectObjectArrays() throws IOException {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("z", 1);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("z", 2);
+        second.put("y", 3);
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("arr", new Object[]{first, "not a map", second});
+        doc.put("other", new Object[]{Collections.singletonMap("y", 4)});
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeMap(doc);
+
+        // paths go through arrays the same way as through lists
+        Map<String, Object> projected = StreamInput.wrap(out.copyBytes()).readMap(new HashSet<>(Arrays.asList("arr.z", "other.z")));
+        assertEquals(Collections.singleton("arr"), projected.keySet());
+        assertArrayEquals(new Object[]{Collections.singletonMap("z", 1), Collections.singletonMap("z", 2)},
+            (Object[]) projected.get("arr"));
+    }
+
+    @Test
+    public void nullMap() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeGenericValue(null);
+        assertNull(StreamInput.wrap(out.copyBytes()).readMap(Collections.singleton("id")));
+    }
+}
@@ -0,0 +1,58 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares raw double arrays with half float and byte quantized ones on a batch of embeddings.
+ */
+public class QuantizedArrayPerformanceTest {
+    Benchmark benchmark = new Benchmark(100, 100);
+    int count = 1000;
+    int dimensions = 256;
+    Random random = new Random();
+
+    interface Writer {
+        void write(BytesStreamOutput out, double[] values) throws IOException;
+    }
+
+    interface Reader {
+        double[] read(StreamInput in) throws IOException;
+    }
+
+    private void measure(String encoding, double[][] embeddings, Writer writer, Reader reader) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        benchmark.measure("embeddings write " + encoding, () -> {
+            out.reset();
+            for (double[] embedding : embeddings) {
+                writer.write(out, embedding);
+            }
+        });
+        byte[] bytes = out.copyBytes();
+        System.out.println("embeddings " + encoding + " size: " + bytes.length);
+        benchmark.measure("embeddings read " + encoding, () -> {
+            StreamInput in = StreamInput.wrap(bytes);
+            for (int i = 0; i < embeddings.length; i++) {
+                reader.read(in);
+            }
+        });
+    }
+
+    @Test
+    public void embeddings() throws IOException {
+        double[][] embeddings = new double[count][dimensions];
+        for (double[] embedding : embeddings) {
+            for (int i = 0; i < dimensions; i++) {
+                embedding[i] = random.nextGaussian() * 0.3;
+            }
+        }
+        measure("double array", embeddings, BytesStreamOutput::writeDoubleArray, StreamInput::readDoubleArray);
+        measure("half float array", embeddings, BytesStreamOutput::writeHalfFloatArray, StreamInput::readHalfFloatDoubleArray);
+        measure("byte quantized array", embeddings, BytesStreamOutput::writeByteQuantizedArray,
+            StreamInput::readByteQuantizedDoubleArray);
+    }
+}
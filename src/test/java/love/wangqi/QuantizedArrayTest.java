@@ -0,0 +1,165 @@
+package love.wangqi;
+
+import love.wangqi.common.HalfFloat;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QuantizedArrayTest {
+    Random random = new Random();
+
+    private double[] embedding(int dimensions) {
+        double[] values = new double[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            values[i] = Math.max(-1, Math.min(1, random.nextGaussian() * 0.3));
+        }
+        return values;
+    }
+
+    @Test
+    public void halfFloatConversions() {
+        for (int i = 0; i <= 0xFFFF; i++) {
+            final short half = (short) i;
+            final float value = HalfFloat.toFloat(half);
+            if (Float.isNaN(value)) {
+                assertTrue(Float.isNaN(HalfFloat.toFloat(HalfFloat.fromFloat(value))));
+            } else {
+                // every half float is a float, and converts back to itself
+                assertEquals(half, HalfFloat.fromFloat(value));
+            }
+        }
+        assertEquals(1f, HalfFloat.toFloat((short) 0x3C00), 0);
+        assertEquals(65504f, HalfFloat.toFloat((short) 0x7BFF), 0);
+        assertEquals(0x1p-24f, HalfFloat.toFloat((short) 0x0001), 0);
+        assertEquals(Float.POSITIVE_INFINITY, HalfFloat.toFloat((short) 0x7C00), 0);
+        assertEquals(Float.floatToRawIntBits(-0f), Float.floatToRawIntBits(HalfFloat.toFloat((short) 0x8000)));
+
+        // ties round to even, on normal and on subnormal half floats
+        assertEquals((short) 0x3C00, HalfFloat.fromFloat(1 + 0x1p-11f));
+        assertEquals((short) 0x3C02, HalfFloat.fromFloat(1 + 3 * 0x1p-11f));
+        assertEquals((short) 0x3C01, HalfFloat.fromFloat(1 + 0x1p-11f + 0x1p-20f));
+        assertEquals((short) 0x0000, HalfFloat.fromFloat(0x1p-25f));
+        assertEquals((short) 0x0002, HalfFloat.fromFloat(3 * 0x1p-25f));
+        assertEquals((short) 0x0001, HalfFloat.fromFloat(0x1.8p-25f));
+        assertEquals((short) 0x0400, HalfFloat.fromFloat(0x1p-14f - 0x1p-26f));
+        // too large values become infinite
+        assertEquals((short) 0x7BFF, HalfFloat.fromFloat(65519f));
+        assertEquals((short) 0x7C00, HalfFloat.fromFloat(65520f));
+        assertEquals((short) 0xFC00, HalfFloat.fromFloat(-1e10f));
+
+        for (int i = 0; i < 100000; i++) {
+            final float value = (random.nextFloat() * 2 - 1) * 60000;
+            final float read = HalfFloat.toFloat(HalfFloat.fromFloat(value));
+            // within half an ulp of the half float, eleven bits of precision
+            assertTrue(value + " read as " + read, Math.abs(read - value) <= Math.max(Math.abs(value) * 0x1p-11f, 0x1p-25f));
+        }
+    }
+
+    @Test
+    public void halfFloatFromDouble() throws IOException {
+        // just above a tie, a float would round to the tie and then down to even
+        assertEquals((short) 0x3C00, HalfFloat.fromFloat((float) (1 + 0x1p-11 + 0x1p-40)));
+        assertEquals((short) 0x3C01, HalfFloat.fromDouble(1 + 0x1p-11 + 0x1p-40));
+        assertEquals((short) 0x0001, HalfFloat.fromDouble(0x1p-25 + 0x1p-60));
+        assertEquals((short) 0x3C00, HalfFloat.fromDouble(1 + 0x1p-11));
+        assertEquals((short) 0x7C00, HalfFloat.fromDouble(1e300));
+        assertEquals((short) 0x8000, HalfFloat.fromDouble(-1e-300));
+        assertTrue(Float.isNaN(HalfFloat.toFloat(HalfFloat.fromDouble(Double.NaN))));
+
+        // values that are exact floats convert the same way from either type
+        for (int i = 0; i < 100000; i++) {
+            final float value = Float.intBitsToFloat(random.nextInt());
+            final short half = HalfFloat.fromFloat(value);
+            if (Float.isNaN(value)) {
+                assertTrue(Float.isNaN(HalfFloat.toFloat(HalfFloat.fromDouble(value))));
+            } else {
+                assertEquals(String.valueOf(value), half, HalfFloat.fromDouble(value));
+            }
+        }
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeHalfFloatArray(new double[]{1 + 0x1p-11 + 0x1p-40});
+        assertArrayEquals(new double[]{1 + 0x1p-10}, StreamInput.wrap(out.copyBytes()).readHalfFloatDoubleArray(), 0);
+    }
+
+    @Test
+    public void accuracy() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (int i = 0; i < 100; i++) {
+            double[] values = embedding(1 + random.nextInt(512));
+            out.reset();
+            out.writeHalfFloatArray(values);
+            out.writeByteQuantizedArray(values);
+            StreamInput in = StreamInput.wrap(out.copyBytes());
+
+            double[] half = in.readHalfFloatDoubleArray();
+            for (int j = 0; j < values.length; j++) {
+                assertEquals(values[j], half[j], Math.max(Math.abs(values[j]) * 0x1p-11, 0x1p-25));
+            }
+
+            double[] quantized = in.readByteQuantizedDoubleArray();
+            double min = Arrays.stream(values).min().getAsDouble();
+            double max = Arrays.stream(values).max().getAsDouble();
+            double step = (max - min) / 255;
+            for (int j = 0; j < values.length; j++) {
+                // half a step, plus what rounding the minimum and the step to floats costs
+                assertEquals(values[j], quantized[j], step / 2 + 1e-6);
+            }
+            assertEquals(0, in.available());
+        }
+    }
+
+    @Test
+    public void constantValues() throws IOException {
+        // the step between two quantized values is zero
+        StreamInputs.assertRoundTrip(out -> {
+            out.writeByteQuantizedArray(new double[]{0.25, 0.25, 0.25});
+            out.writeByteQuantizedArray(new float[]{-3f});
+        }, in -> {
+            assertArrayEquals(new float[]{0.25f, 0.25f, 0.25f}, in.readByteQuantizedArray(), 0);
+            assertArrayEquals(new double[]{-3}, in.readByteQuantizedDoubleArray(), 0);
+        });
+    }
+
+    @Test
+    public void sizes() throws IOException {
+        double[] values = embedding(256);
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeDoubleArray(values);
+        assertEquals(2 + 8 * 256, out.size());
+        out.reset();
+        out.writeHalfFloatArray(values);
+        assertEquals(2 + 2 * 256, out.size());
+        out.reset();
+        out.writeByteQuantizedArray(values);
+        // the length, the minimum and the step, then a byte per value
+        assertEquals(2 + 4 + 4 + 256, out.size());
+    }
+
+    @Test
+    public void nonFiniteValues() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeHalfFloatArray(new float[]{Float.NaN, Float.NEGATIVE_INFINITY});
+        float[] read = StreamInput.wrap(out.copyBytes()).readHalfFloatArray();
+        assertTrue(Float.isNaN(read[0]));
+        assertEquals(Float.NEGATIVE_INFINITY, read[1], 0);
+
+        for (double[] values : new double[][]{{1, Double.NaN}, {Double.POSITIVE_INFINITY}, {0, 1e300}}) {
+            try {
+                out.writeByteQuantizedArray(values);
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Can't quantize values between"));
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package love.wangqi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random strings for the tests of the string encoding, mixing the one, two and three byte UTF-8 characters.
+ */
+final class RandomStrings {
+
+    private RandomStrings() {
+    }
+
+    /**
+     * Returns a string of {@code length} chars that are all ASCII, all CJK, or a mix of ASCII, two byte and CJK chars.
+     */
+    static String randomString(Random random, int length) {
+        char[] chars = new char[length];
+        int kind = random.nextInt(3);
+        for (int i = 0; i < length; i++) {
+            switch (kind == 2 ? random.nextInt(3) : kind) {
+                case 0:
+                    chars[i] = (char) (' ' + random.nextInt(95));
+                    break;
+                case 1:
+                    chars[i] = (char) (0x4E00 + random.nextInt(0x5000));
+                    break;
+                default:
+                    chars[i] = (char) (0x80 + random.nextInt(0x700));
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns the empty string, one char strings and random strings, mostly short but a few larger than the scratch buffers.
+     */
+    static List<String> randomStrings(Random random) {
+        List<String> strings = new ArrayList<>();
+        strings.add("");
+        strings.add("a");
+        strings.add("中");
+        for (int i = 0; i < 200; i++) {
+            strings.add(randomString(random, random.nextInt(i < 190 ? 100 : 20000)));
+        }
+        return strings;
+    }
+}
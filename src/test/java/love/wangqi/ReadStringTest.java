@@ -0,0 +1,59 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.InputStreamStreamInput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ReadStringTest {
+    Random random = new Random();
+
+    @Test
+    public void readStringFromEveryInput() throws IOException {
+        List<String> strings = RandomStrings.randomStrings(random);
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (String string : strings) {
+            out.writeString(string);
+        }
+        byte[] bytes = out.copyBytes();
+
+        StreamInputs.forEachInput(bytes, in -> assertStrings(in, strings));
+        assertStrings(new InputStreamStreamInput(
+            new InputStreamStreamInputTest.TrickleInputStream(bytes), bytes.length, 8192), strings);
+    }
+
+    private void assertStrings(StreamInput in, List<String> strings) throws IOException {
+        for (String string : strings) {
+            assertEquals(string, in.readString());
+        }
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void truncatedString() throws IOException {
+        for (String string : Arrays.asList("abcdef", "中文中文", "abc中文")) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            out.writeString(string);
+            byte[] bytes = Arrays.copyOf(out.copyBytes(), out.size() - 1);
+            StreamInputs.forEachInput(bytes, this::assertTruncated);
+        }
+    }
+
+    private void assertTruncated(StreamInput in) throws IOException {
+        try {
+            in.readString();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package love.wangqi;
+
+import love.wangqi.common.bytes.BytesArray;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.StreamOutput;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SkipTest {
+    Random random = new Random();
+
+    private Map<String, Object> document(int i) {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("string", "value " + i + " 中文 é");
+        doc.put("int", i);
+        doc.put("long", (long) i);
+        doc.put("float", (float) i);
+        doc.put("double", (double) i);
+        doc.put("boolean", i % 2 == 0);
+        doc.put("bytes", new byte[]{1, 2, 3});
+        doc.put("list", Arrays.asList(1, "two", 3.0, null));
+        doc.put("array", new Object[]{"a", 1L});
+        doc.put("byte", (byte) i);
+        doc.put("date", new Date(i));
+        doc.put("reference", new BytesArray(new byte[]{4, 5}));
+        doc.put("short", (short) i);
+        doc.put("ints", new int[]{1, 2});
+        doc.put("longs", new long[]{1, 2});
+        doc.put("floats", new float[]{1, 2});
+        doc.put("doubles", new double[]{1, 2});
+        doc.put("zoned", ZonedDateTime.of(2020, 1, 1, 0, 0, 0, 0, ZoneId.of("Asia/Shanghai")));
+        doc.put("typedDoubles", IntStream.range(0, 10).mapToDouble(j -> random.nextDouble()).boxed().collect(Collectors.toList()));
+        doc.put("typedLongs", Arrays.asList(1L, 2L));
+        doc.put("typedInts", Arrays.asList(1, 2));
+        doc.put("typedFloats", Arrays.asList(1f, 2f));
+        doc.put("typedStrings", Arrays.asList("x", "y"));
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("key", "value");
+        nested.put("null", null);
+        doc.put("nested", nested);
+        return doc;
+    }
+
+    private void writeMessages(StreamOutput out) throws IOException {
+        for (int i = 0; i < 100; i++) {
+            out.writeString("header " + i);
+            out.writeGenericValue(document(i));
+            out.writeByteArray(new byte[i]);
+            out.writeStringArray(new String[]{"a", "ü", "€" + i});
+            out.writeVInt(i);
+        }
+    }
+
+    private void skipMessages(StreamInput in) throws IOException {
+        for (int i = 0; i < 100; i++) {
+            assertEquals("header " + i, in.readString());
+            in.skipGenericValue();
+            in.skipByteArray();
+            in.skipArray(StreamInput::skipString);
+            assertEquals(i, in.readVInt());
+        }
+        try {
+            in.skipBytes(1);
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void skipEveryInput() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        writeMessages(out);
+        StreamInputs.forEachInput(out.copyBytes(), this::skipMessages);
+    }
+
+    @Test
+    public void skipLongStrings() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            builder.append((char) random.nextInt(0xD800));
+        }
+        String string = builder.toString();
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeString(string);
+        out.writeString("after");
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        in.skipString();
+        assertEquals("after", in.readString());
+    }
+
+    @Test
+    public void skipSharedStrings() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.enableStringDictionary();
+        out.writeGenericValue(document(0));
+        out.writeGenericValue(document(1));
+        out.writeGenericValue(document(2));
+
+        // the keys shared by the skipped documents are still resolved in the one that is read
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        in.skipGenericValue();
+        in.skipGenericValue();
+        Map<String, Object> read = in.readMap();
+        assertEquals(document(2).keySet(), read.keySet());
+        assertEquals("value 2 中文 é", read.get("string"));
+        assertEquals(Arrays.asList("x", "y"), read.get("typedStrings"));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void skipUnknownType() throws IOException {
+        StreamInput in = StreamInput.wrap(new byte[]{100});
+        try {
+            in.skipGenericValue();
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertEquals("Can't skip unknown type [100]", e.getMessage());
+        }
+        List<String> strings = Arrays.asList("a", "b");
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeStringCollection(strings);
+        in = StreamInput.wrap(out.copyBytes());
+        in.skipArray(StreamInput::skipString);
+        assertEquals(0, in.available());
+    }
+}
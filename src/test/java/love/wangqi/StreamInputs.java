@@ -0,0 +1,80 @@
+package love.wangqi;
+
+import love.wangqi.stream.ByteBufferStreamInput;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.CompositeStreamInput;
+import love.wangqi.stream.InputStreamStreamInput;
+import love.wangqi.stream.MMapStreamInput;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.Writeable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the same assertions against every {@link StreamInput} implementation, so that the fast paths each of them
+ * overrides are checked against the same bytes.
+ */
+final class StreamInputs {
+
+    interface Check {
+        void check(StreamInput in) throws IOException;
+    }
+
+    /**
+     * The size of the buffers the bytes are split into for {@link CompositeStreamInput}, and of the mapped regions of
+     * {@link MMapStreamInput}, small so that values cross their boundaries.
+     */
+    private static final int CHUNK_SIZE = 256;
+
+    private static final String END = "end";
+
+    private StreamInputs() {
+    }
+
+    /**
+     * Runs {@code check} on the given bytes read from a byte array, a heap and a direct byte buffer, chained buffers, an
+     * unbuffered and a buffered input stream, and a memory mapped file.
+     */
+    static void forEachInput(byte[] bytes, Check check) throws IOException {
+        check.check(StreamInput.wrap(bytes));
+        check.check(new ByteBufferStreamInput(ByteBuffer.wrap(bytes)));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        check.check(new ByteBufferStreamInput(direct));
+        ByteBuffer[] chunks = new ByteBuffer[(bytes.length + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.wrap(bytes, i * CHUNK_SIZE, Math.min(CHUNK_SIZE, bytes.length - i * CHUNK_SIZE));
+        }
+        check.check(new CompositeStreamInput(chunks));
+        check.check(new InputStreamStreamInput(new ByteArrayInputStream(bytes)));
+        check.check(new InputStreamStreamInput(new ByteArrayInputStream(bytes), bytes.length, 100));
+        Path file = Files.createTempFile("stream", ".bin");
+        try {
+            Files.write(file, bytes);
+            check.check(MMapStreamInput.open(file, CHUNK_SIZE));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Writes the values with {@code writer} followed by an end marker, then runs {@code check} to read them back from every
+     * input and asserts that it stopped right before the marker.
+     */
+    static void assertRoundTrip(Writeable writer, Check check) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        writer.writeTo(out);
+        out.writeString(END);
+        forEachInput(out.copyBytes(), in -> {
+            check.check(in);
+            assertEquals(END, in.readString());
+            assertEquals(-1, in.read());
+        });
+    }
+}
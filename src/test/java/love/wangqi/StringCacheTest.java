@@ -0,0 +1,96 @@
+package love.wangqi;
+
+import love.wangqi.stream.BoundedStringCache;
+import love.wangqi.stream.ByteBufferStreamInput;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.CompositeStreamInput;
+import love.wangqi.stream.InputStreamStreamInput;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.StringCache;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class StringCacheTest {
+
+    private byte[] document() throws IOException {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("timestamp", 1577836800000L);
+        doc.put("host", "host-1");
+        doc.put("名字", "中文");
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeMap(doc);
+        return out.copyBytes();
+    }
+
+    private String key(Map<String, Object> doc, String key) {
+        for (String k : doc.keySet()) {
+            if (k.equals(key)) {
+                return k;
+            }
+        }
+        throw new AssertionError("missing key " + key);
+    }
+
+    @Test
+    public void mapKeysAreShared() throws IOException {
+        byte[] bytes = document();
+        StringCache cache = new BoundedStringCache();
+        List<StreamInput> inputs = new ArrayList<>();
+        inputs.add(StreamInput.wrap(bytes));
+        inputs.add(new ByteBufferStreamInput(ByteBuffer.wrap(bytes)));
+        inputs.add(new CompositeStreamInput(ByteBuffer.wrap(bytes, 0, 7), ByteBuffer.wrap(bytes, 7, bytes.length - 7)));
+        inputs.add(new InputStreamStreamInput(new ByteArrayInputStream(bytes)));
+        inputs.add(new InputStreamStreamInput(new ByteArrayInputStream(bytes), bytes.length, 8192));
+
+        Map<String, Object> first = null;
+        for (StreamInput in : inputs) {
+            in.setStringCache(cache);
+            Map<String, Object> doc = in.readMap();
+            if (first == null) {
+                first = doc;
+                continue;
+            }
+            assertEquals(first, doc);
+            for (String key : first.keySet()) {
+                assertSame(key, key(doc, key));
+            }
+        }
+
+        // without a cache every read allocates its own keys
+        Map<String, Object> uncached = StreamInput.wrap(bytes).readMap();
+        assertEquals(first, uncached);
+        assertNotSame(key(first, "host"), key(uncached, "host"));
+    }
+
+    @Test
+    public void boundedCache() {
+        BoundedStringCache cache = new BoundedStringCache(3, 8);
+        assertEquals(4, cache.size());
+        char[] chars = "timestamp host level".toCharArray();
+        String host = cache.get(chars, 10, 4);
+        assertEquals("host", host);
+        assertSame(host, cache.get("host".toCharArray(), 0, 4));
+        // longer than the maximum length
+        String timestamp = cache.get(chars, 0, 9);
+        assertEquals("timestamp", timestamp);
+        assertNotSame(timestamp, cache.get(chars, 0, 9));
+
+        // many strings evict each other but lookups always return an equal string
+        for (int i = 0; i < 1000; i++) {
+            String key = "k" + (i % 50);
+            assertEquals(key, cache.get(key.toCharArray(), 0, key.length()));
+        }
+        assertEquals("", cache.get(chars, 0, 0));
+    }
+}
@@ -0,0 +1,117 @@
+package love.wangqi;
+
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StringDictionaryTest {
+    Random random = new Random();
+    String[] levels = {"DEBUG", "INFO", "WARN", "ERROR"};
+
+    private Map<String, Object> logLine(int i) {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("timestamp", 1577836800000L + i);
+        doc.put("host", "host-" + random.nextInt(10));
+        doc.put("level", levels[random.nextInt(levels.length)]);
+        doc.put("logger", "love.wangqi.stream.StreamOutput");
+        doc.put("message", "request " + i + " took " + random.nextInt(1000) + "ms");
+        Map<String, Object> http = new HashMap<>();
+        http.put("method", "GET");
+        http.put("status", 200);
+        doc.put("http", http);
+        return doc;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        List<Object> docs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            docs.add(logLine(i));
+        }
+
+        BytesStreamOutput plain = new BytesStreamOutput();
+        plain.writeGenericValue(docs);
+
+        BytesStreamOutput shared = new BytesStreamOutput();
+        shared.enableStringDictionary();
+        assertTrue(shared.isStringDictionaryEnabled());
+        shared.writeGenericValue(docs);
+        // the dictionary spans values written one after the other
+        shared.writeMap(logLine(1000));
+        shared.writeMap(logLine(1001));
+
+        assertTrue("expected the dictionary to halve the size but was " + shared.size() + " vs " + plain.size(),
+            shared.size() * 2 < plain.size());
+
+        StreamInput in = StreamInput.wrap(shared.copyBytes());
+        @SuppressWarnings("unchecked")
+        List<Object> read = (List<Object>) in.readGenericValue();
+        assertEquals(docs, read);
+        assertTrue(read.get(0) instanceof LinkedHashMap);
+        assertTrue(((Map<?, ?>) read.get(0)).get("http") instanceof HashMap);
+        Map<String, Object> first = in.readMap();
+        Map<String, Object> second = in.readMap();
+        assertEquals(1577836800000L + 1000, first.get("timestamp"));
+        assertEquals(1577836800000L + 1001, second.get("timestamp"));
+        assertEquals(-1, in.read());
+
+        // repeated keys decode to the same instance
+        Object firstKey = ((Map<?, ?>) read.get(0)).keySet().iterator().next();
+        assertSame(firstKey, ((Map<?, ?>) read.get(1)).keySet().iterator().next());
+    }
+
+    @Test
+    public void resetClearsTheDictionary() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.enableStringDictionary();
+        Map<String, Object> doc = logLine(0);
+        out.writeMap(doc);
+        out.reset();
+        out.writeMap(doc);
+        assertEquals(doc, StreamInput.wrap(out.copyBytes()).readMap());
+    }
+
+    @Test
+    public void sharedStrings() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        assertFalse(out.isStringDictionaryEnabled());
+        try {
+            out.writeSharedString("key");
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        out.enableStringDictionary();
+        for (int i = 0; i < 100; i++) {
+            out.writeSharedString("key" + (i % 10));
+        }
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("key" + (i % 10), in.readSharedString());
+        }
+
+        // a reference to a string that was never read
+        out.reset();
+        out.writeVInt(3);
+        try {
+            StreamInput.wrap(out.copyBytes()).readSharedString();
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("unknown shared string"));
+        }
+    }
+}
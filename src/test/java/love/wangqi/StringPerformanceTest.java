@@ -0,0 +1,87 @@
+package love.wangqi;
+
+import love.wangqi.stream.ByteBufferStreamInput;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.InputStreamStreamInput;
+import love.wangqi.stream.OutputStreamStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures encoding and decoding short ASCII field names, long ASCII values and CJK text with the different streams.
+ */
+public class StringPerformanceTest {
+    Benchmark benchmark = new Benchmark(1000, 1000);
+    int count = 1000;
+
+    private void measureAll(String kind, String value) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (int i = 0; i < count; i++) {
+            out.writeString(value);
+        }
+        byte[] bytes = out.copyBytes();
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        String[] last = new String[1];
+
+        benchmark.measure(kind + " write bytes stream", () -> {
+            out.reset();
+            for (int i = 0; i < count; i++) {
+                out.writeString(value);
+            }
+        });
+        assertArrayEquals(bytes, out.copyBytes());
+        benchmark.measure(kind + " write buffered output stream", () -> {
+            OutputStreamStreamOutput streamOut = new OutputStreamStreamOutput(new ByteArrayOutputStream(bytes.length), 8192);
+            for (int i = 0; i < count; i++) {
+                streamOut.writeString(value);
+            }
+            streamOut.flush();
+        });
+
+        benchmark.measure(kind + " byte array", () -> readAll(StreamInput.wrap(bytes), last));
+        assertEquals(value, last[0]);
+        benchmark.measure(kind + " direct buffer", () -> readAll(new ByteBufferStreamInput(direct), last));
+        assertEquals(value, last[0]);
+        benchmark.measure(kind + " buffered input stream", () -> readAll(
+            new InputStreamStreamInput(new ByteArrayInputStream(bytes), bytes.length, 8192), last));
+        assertEquals(value, last[0]);
+        benchmark.measure(kind + " unbuffered input stream", () -> readAll(
+            new InputStreamStreamInput(new ByteArrayInputStream(bytes)), last));
+        assertEquals(value, last[0]);
+    }
+
+    private void readAll(StreamInput in, String[] last) throws IOException {
+        for (int i = 0; i < count; i++) {
+            last[0] = in.readString();
+        }
+    }
+
+    @Test
+    public void shortAscii() throws IOException {
+        measureAll("short ascii", "user_id");
+    }
+
+    @Test
+    public void longAscii() throws IOException {
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'x');
+        measureAll("long ascii", new String(chars));
+    }
+
+    @Test
+    public void cjk() throws IOException {
+        char[] chars = new char[100];
+        Arrays.fill(chars, '中');
+        measureAll("cjk", new String(chars));
+    }
+}
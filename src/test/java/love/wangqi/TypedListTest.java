@@ -0,0 +1,148 @@
+package love.wangqi;
+
+import love.wangqi.common.DoubleList;
+import love.wangqi.common.FloatList;
+import love.wangqi.common.IntList;
+import love.wangqi.common.LongList;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.StreamInput;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TypedListTest {
+    Random random = new Random();
+
+    private Object roundTrip(Object value) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeGenericValue(value);
+        return StreamInput.wrap(out.copyBytes()).readGenericValue();
+    }
+
+    @Test
+    public void homogeneousLists() throws IOException {
+        List<Double> doubles = IntStream.range(0, 100).mapToDouble(i -> random.nextDouble()).boxed().collect(Collectors.toList());
+        List<Long> longs = IntStream.range(0, 100).mapToObj(i -> random.nextLong()).collect(Collectors.toList());
+        List<Integer> ints = IntStream.range(0, 100).mapToObj(i -> random.nextInt()).collect(Collectors.toList());
+        List<Float> floats = IntStream.range(0, 100).mapToObj(i -> random.nextFloat()).collect(Collectors.toList());
+        List<String> strings = IntStream.range(0, 100).mapToObj(i -> "value " + i).collect(Collectors.toList());
+
+        Object read = roundTrip(doubles);
+        assertTrue(read instanceof DoubleList);
+        assertEquals(doubles, read);
+        assertEquals(read, doubles);
+        assertEquals(doubles.hashCode(), read.hashCode());
+
+        read = roundTrip(longs);
+        assertTrue(read instanceof LongList);
+        assertEquals(longs, read);
+        assertEquals(longs.hashCode(), read.hashCode());
+
+        read = roundTrip(ints);
+        assertTrue(read instanceof IntList);
+        assertEquals(ints, read);
+        assertEquals(ints.hashCode(), read.hashCode());
+
+        read = roundTrip(floats);
+        assertTrue(read instanceof FloatList);
+        assertEquals(floats, read);
+        assertEquals(floats.hashCode(), read.hashCode());
+
+        assertEquals(strings, roundTrip(strings));
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("feature", doubles);
+        map.put("ids", longs);
+        Map<?, ?> readMap = (Map<?, ?>) roundTrip(map);
+        assertTrue(readMap.get("feature") instanceof DoubleList);
+        assertEquals(map, readMap);
+    }
+
+    @Test
+    public void smallerThanGenericEncoding() throws IOException {
+        List<Double> doubles = IntStream.range(0, 1000).mapToDouble(i -> random.nextDouble()).boxed().collect(Collectors.toList());
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeGenericValue(doubles);
+        // one type byte, the vint size and the values
+        assertEquals(1 + 2 + 8 * doubles.size(), out.size());
+    }
+
+    @Test
+    public void mixedListsStayGeneric() throws IOException {
+        List<Object> mixed = Arrays.asList(1, 2L, 3.0, "four");
+        Object read = roundTrip(mixed);
+        assertTrue(read instanceof ArrayList);
+        assertEquals(mixed, read);
+
+        List<Double> withNull = Arrays.asList(1.0, null, 3.0);
+        read = roundTrip(withNull);
+        assertTrue(read instanceof ArrayList);
+        assertEquals(withNull, read);
+
+        read = roundTrip(Collections.emptyList());
+        assertTrue(read instanceof ArrayList);
+        assertEquals(0, ((List<?>) read).size());
+    }
+
+    @Test
+    public void primitiveListViews() throws IOException {
+        double[] values = {1, 2, 3, 4, 5};
+        DoubleList view = new DoubleList(values, 1, 3);
+        assertEquals(Arrays.asList(2.0, 3.0, 4.0), view);
+        assertEquals(Arrays.asList(2.0, 3.0, 4.0), roundTrip(view));
+
+        assertEquals(Arrays.asList(1L, 2L), roundTrip(new LongList(new long[]{0, 1, 2}, 1, 2)));
+        assertEquals(Arrays.asList(7, 8, 9), roundTrip(new IntList(new int[]{7, 8, 9})));
+        assertEquals(Collections.emptyList(), roundTrip(new FloatList(new float[0])));
+
+        view.set(0, 10.0);
+        assertEquals(10.0, values[1], 0);
+    }
+
+    @Test
+    public void stringListsWithDictionary() throws IOException {
+        List<String> strings = Arrays.asList("a", "b", "a", "b");
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.enableStringDictionary();
+        out.writeGenericValue(strings);
+        out.writeGenericValue(strings);
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        assertEquals(strings, in.readGenericValue());
+        assertEquals(strings, in.readGenericValue());
+    }
+
+    @Test
+    public void readAndWritePrimitiveLists() throws IOException {
+        double[] doubles = random.doubles(1024).toArray();
+        List<Long> longs = Arrays.asList(1L, -2L, Long.MAX_VALUE);
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeDoubleList(new DoubleList(doubles, 24, 1000));
+        out.writeLongList(longs);
+        out.writeIntList(new IntList(new int[]{1, 2, 3}));
+        out.writeFloatList(Arrays.asList(0.5f, -1f));
+        // the list methods use the same layout as the array methods
+        out.writeDoubleArray(doubles);
+
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        DoubleList readDoubles = in.readDoubleList();
+        assertEquals(new DoubleList(doubles, 24, 1000), readDoubles);
+        assertEquals(doubles[24], readDoubles.getDouble(0), 0);
+        assertEquals(longs, in.readLongList());
+        assertEquals(Arrays.asList(1, 2, 3), in.readIntList());
+        assertEquals(Arrays.asList(0.5f, -1f), in.readFloatList());
+        assertEquals(new DoubleList(doubles), in.readDoubleList());
+        assertEquals(0, in.available());
+    }
+}
@@ -6,8 +6,6 @@ import love.wangqi.stream.Streamable;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.DoubleStream;
 
 /**
  * @author: wangqi
@@ -58,7 +56,7 @@ public class User implements Streamable {
         id = in.readInt();
         name = in.readString();
         age = in.readShort();
-        feature = DoubleStream.of(in.readDoubleArray()).boxed().collect(Collectors.toList());
+        feature = in.readDoubleList();
     }
 
     @Override
@@ -66,6 +64,6 @@ public class User implements Streamable {
         out.writeInt(id);
         out.writeString(name);
         out.writeShort(age);
-        out.writeDoubleArray(feature.stream().mapToDouble(Double::doubleValue).toArray());
+        out.writeDoubleList(feature);
     }
 }
@@ -0,0 +1,134 @@
+package love.wangqi;
+
+import love.wangqi.stream.ByteBufferStreamInput;
+import love.wangqi.stream.ByteBufferStreamOutput;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.InputStreamStreamInput;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.StreamOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures writing and reading varints with realistic value distributions: short lengths, millisecond timestamps and
+ * zig-zag encoded deltas between neighbouring values.
+ */
+public class VarIntPerformanceTest {
+    Benchmark benchmark = new Benchmark(1000, 1000);
+    int count = 10000;
+    Random random = new Random();
+
+    interface Codec {
+        void write(StreamOutput out, long value) throws IOException;
+
+        long read(StreamInput in) throws IOException;
+    }
+
+    private void measureAll(String kind, long[] values, Codec codec) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        ByteBufferStreamOutput directOut = new ByteBufferStreamOutput(ByteBufferStreamOutput.DEFAULT_BUFFER_SIZE, true);
+        benchmark.measure(kind + " write bytes stream", () -> {
+            out.reset();
+            for (long value : values) {
+                codec.write(out, value);
+            }
+        });
+        benchmark.measure(kind + " write direct buffers", () -> {
+            directOut.reset();
+            for (long value : values) {
+                codec.write(directOut, value);
+            }
+        });
+
+        byte[] bytes = out.copyBytes();
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        long[] sum = new long[1];
+        long expected = 0;
+        for (long value : values) {
+            expected += value;
+        }
+        benchmark.measure(kind + " read byte array", () -> sum[0] = readAll(StreamInput.wrap(bytes), values.length, codec));
+        assertEquals(expected, sum[0]);
+        benchmark.measure(kind + " read direct buffer", () -> sum[0] = readAll(new ByteBufferStreamInput(direct), values.length, codec));
+        assertEquals(expected, sum[0]);
+        // reads byte by byte through readByte, the generic implementation
+        benchmark.measure(kind + " read unbuffered input stream", () -> sum[0] = readAll(
+            new InputStreamStreamInput(new ByteArrayInputStream(bytes)), values.length, codec));
+        assertEquals(expected, sum[0]);
+    }
+
+    private long readAll(StreamInput in, int count, Codec codec) throws IOException {
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += codec.read(in);
+        }
+        return sum;
+    }
+
+    @Test
+    public void smallLengths() throws IOException {
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            // mostly below 128, some up to a few thousands
+            values[i] = random.nextInt(10) == 0 ? random.nextInt(5000) : random.nextInt(128);
+        }
+        measureAll("length", values, new Codec() {
+            @Override
+            public void write(StreamOutput out, long value) throws IOException {
+                out.writeVInt((int) value);
+            }
+
+            @Override
+            public long read(StreamInput in) throws IOException {
+                return in.readVInt();
+            }
+        });
+    }
+
+    @Test
+    public void timestamps() throws IOException {
+        long[] values = new long[count];
+        long timestamp = 1577836800000L;
+        for (int i = 0; i < count; i++) {
+            timestamp += random.nextInt(1000);
+            values[i] = timestamp;
+        }
+        measureAll("timestamp", values, new Codec() {
+            @Override
+            public void write(StreamOutput out, long value) throws IOException {
+                out.writeVLong(value);
+            }
+
+            @Override
+            public long read(StreamInput in) throws IOException {
+                return in.readVLong();
+            }
+        });
+    }
+
+    @Test
+    public void zigZagDeltas() throws IOException {
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (long) (random.nextGaussian() * 1000);
+        }
+        measureAll("delta", values, new Codec() {
+            @Override
+            public void write(StreamOutput out, long value) throws IOException {
+                out.writeZLong(value);
+            }
+
+            @Override
+            public long read(StreamInput in) throws IOException {
+                return in.readZLong();
+            }
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package love.wangqi;
+
+import love.wangqi.common.ByteUtils;
+import love.wangqi.stream.ByteBufferStreamOutput;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.CompositeStreamInput;
+import love.wangqi.stream.InputStreamStreamInput;
+import love.wangqi.stream.OutputStreamStreamOutput;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.StreamOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class VarIntTest {
+    Random random = new Random();
+
+    private int[] ints() {
+        List<Integer> values = new ArrayList<>();
+        for (int shift = 0; shift < 32; shift++) {
+            values.add((1 << shift) - 1);
+            values.add(1 << shift);
+            values.add(-(1 << shift));
+        }
+        values.add(Integer.MAX_VALUE);
+        values.add(Integer.MIN_VALUE);
+        for (int i = 0; i < 100; i++) {
+            values.add(random.nextInt());
+        }
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private long[] longs() {
+        List<Long> values = new ArrayList<>();
+        for (int shift = 0; shift < 63; shift++) {
+            values.add((1L << shift) - 1);
+            values.add(1L << shift);
+        }
+        values.add(Long.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            values.add(random.nextLong() >>> 1);
+        }
+        return values.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private void write(StreamOutput out, int[] ints, long[] longs) throws IOException {
+        for (int i : ints) {
+            out.writeVInt(i);
+        }
+        for (long l : longs) {
+            out.writeVLong(l);
+            out.writeZLong(l);
+            out.writeZLong(-l);
+        }
+        out.writeZLong(Long.MIN_VALUE);
+    }
+
+    private void read(StreamInput in, int[] ints, long[] longs) throws IOException {
+        for (int i : ints) {
+            assertEquals(i, in.readVInt());
+        }
+        for (long l : longs) {
+            assertEquals(l, in.readVLong());
+            assertEquals(l, in.readZLong());
+            assertEquals(-l, in.readZLong());
+        }
+        assertEquals(Long.MIN_VALUE, in.readZLong());
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        int[] ints = ints();
+        long[] longs = longs();
+
+        BytesStreamOutput bytesOut = new BytesStreamOutput();
+        write(bytesOut, ints, longs);
+        byte[] bytes = bytesOut.copyBytes();
+
+        // every output writes the same bytes, including across page and buffer boundaries
+        ByteArrayOutputStream streamBytes = new ByteArrayOutputStream();
+        OutputStreamStreamOutput streamOut = new OutputStreamStreamOutput(streamBytes, 64);
+        write(streamOut, ints, longs);
+        streamOut.flush();
+        assertArrayEquals(bytes, streamBytes.toByteArray());
+        for (boolean direct : new boolean[]{false, true}) {
+            ByteBufferStreamOutput bufferOut = new ByteBufferStreamOutput(13, direct);
+            write(bufferOut, ints, longs);
+            assertEquals(bytes.length, bufferOut.size());
+            CompositeStreamInput in = new CompositeStreamInput(bufferOut.toByteBuffers());
+            byte[] written = new byte[bytes.length];
+            in.readBytes(written, 0, written.length);
+            assertArrayEquals(bytes, written);
+        }
+        // the generic implementation, one call per value
+        ByteArrayOutputStream plainBytes = new ByteArrayOutputStream();
+        StreamOutput plainOut = new OutputStreamStreamOutput(new OutputStream() {
+            @Override
+            public void write(int b) {
+                plainBytes.write(b);
+            }
+        }, 0);
+        write(plainOut, ints, longs);
+        plainOut.flush();
+        assertArrayEquals(bytes, plainBytes.toByteArray());
+
+        StreamInputs.forEachInput(bytes, in -> read(in, ints, longs));
+        // a buffer smaller than the longest values, so they are refilled in the middle of a value
+        read(new InputStreamStreamInput(new ByteArrayInputStream(bytes), bytes.length, 16), ints, longs);
+    }
+
+    @Test
+    public void sizes() {
+        byte[] buffer = new byte[10];
+        for (int i : ints()) {
+            assertEquals(ByteUtils.writeVInt(i, buffer, 0), ByteUtils.vIntSize(i));
+        }
+        for (long l : longs()) {
+            assertEquals(ByteUtils.writeVLong(l, buffer, 0), ByteUtils.vLongSize(l));
+            assertEquals(ByteUtils.writeVLong(-l, buffer, 0), ByteUtils.vLongSize(-l));
+        }
+        assertEquals(1, ByteUtils.vIntSize(0));
+        assertEquals(5, ByteUtils.vIntSize(-1));
+        assertEquals(1, ByteUtils.vLongSize(0));
+        assertEquals(10, ByteUtils.vLongSize(-1));
+    }
+
+    @Test
+    public void truncated() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeVLong(Long.MAX_VALUE);
+        byte[] bytes = out.copyBytes();
+        try {
+            StreamInput.wrap(bytes, 0, bytes.length - 1).readVLong();
+            fail("expected EOFException");
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+}
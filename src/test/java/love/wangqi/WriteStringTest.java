@@ -0,0 +1,91 @@
+package love.wangqi;
+
+import love.wangqi.stream.ByteBufferStreamInput;
+import love.wangqi.stream.ByteBufferStreamOutput;
+import love.wangqi.stream.BytesStreamOutput;
+import love.wangqi.stream.CompositeStreamInput;
+import love.wangqi.stream.OutputStreamStreamOutput;
+import love.wangqi.stream.StreamInput;
+import love.wangqi.stream.StreamOutput;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class WriteStringTest {
+    Random random = new Random();
+
+    @Test
+    public void writeStringToEveryOutput() throws IOException {
+        List<String> strings = RandomStrings.randomStrings(random);
+
+        BytesStreamOutput expected = new BytesStreamOutput();
+        for (String string : strings) {
+            expected.writeVInt(string.length());
+            byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+            expected.writeBytes(encoded, 0, encoded.length);
+        }
+        byte[] expectedBytes = expected.copyBytes();
+
+        BytesStreamOutput bytesOut = new BytesStreamOutput();
+        writeStrings(strings, bytesOut);
+        assertArrayEquals(expectedBytes, bytesOut.copyBytes());
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (OutputStreamStreamOutput out = new OutputStreamStreamOutput(os, 1024)) {
+            writeStrings(strings, out);
+        }
+        assertArrayEquals(expectedBytes, os.toByteArray());
+
+        os = new ByteArrayOutputStream();
+        try (OutputStreamStreamOutput out = new OutputStreamStreamOutput(os)) {
+            writeStrings(strings, out);
+        }
+        assertArrayEquals(expectedBytes, os.toByteArray());
+
+        for (boolean direct : new boolean[]{false, true}) {
+            ByteBufferStreamOutput out = new ByteBufferStreamOutput(1000, direct);
+            writeStrings(strings, out);
+            StreamInput in = new CompositeStreamInput(out.toByteBuffers());
+            byte[] bytes = new byte[expectedBytes.length];
+            in.readBytes(bytes, 0, bytes.length);
+            assertArrayEquals(expectedBytes, bytes);
+        }
+
+        StreamInput in = new ByteBufferStreamInput(ByteBuffer.wrap(expectedBytes));
+        for (String string : strings) {
+            assertEquals(string, in.readString());
+        }
+    }
+
+    /**
+     * Writes every other string as a {@link StringBuilder} so that both overloads are exercised.
+     */
+    private void writeStrings(List<String> strings, StreamOutput out) throws IOException {
+        for (int i = 0; i < strings.size(); i++) {
+            if (i % 2 == 0) {
+                out.writeString(strings.get(i));
+            } else {
+                out.writeString(new StringBuilder(strings.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void optionalCharSequence() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeOptionalString((CharSequence) null);
+        out.writeOptionalString(new StringBuilder("key.").append(42));
+        StreamInput in = StreamInput.wrap(out.copyBytes());
+        assertNull(in.readOptionalString());
+        assertEquals("key.42", in.readOptionalString());
+    }
+}